@@ -0,0 +1,91 @@
+package com.yanny.ytech.network.generic.server;
+
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.core.BlockPos;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// time to find detached parts after removing single block from network of given size
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NetworkGraphSplitBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private NetworkGraph line;
+    private long lineCut;
+    private byte lineConnections;
+
+    private NetworkGraph fields;
+    private long bridge;
+    private byte bridgeConnections;
+
+    private NetworkGraph tail;
+    private long tailRoot;
+    private byte tailConnections;
+
+    @Setup
+    public void setup() {
+        // straight aqueduct cut in the middle, both parts are equal
+        line = new NetworkGraph();
+
+        for (int x = 0; x < size; x++) {
+            line.add(BlockPos.asLong(x, 64, 0), NetworkGraph.HORIZONTAL_CONNECTIONS);
+        }
+
+        lineCut = BlockPos.asLong(size / 2, 64, 0);
+        lineConnections = line.getConnections(lineCut);
+        line.remove(lineCut);
+
+        // two square fields joined by single bridge block
+        int side = (int) Math.sqrt(size / 2.0);
+
+        fields = new NetworkGraph();
+        addSquare(fields, 0, side);
+        addSquare(fields, side + 1, side);
+        bridge = BlockPos.asLong(side, 64, side / 2);
+        fields.add(bridge, NetworkGraph.HORIZONTAL_CONNECTIONS);
+        bridgeConnections = fields.getConnections(bridge);
+        fields.remove(bridge);
+
+        // big field with short 16 block tail, only the tail is detached
+        int fieldSide = (int) Math.sqrt(size);
+
+        tail = new NetworkGraph();
+        addSquare(tail, 0, fieldSide);
+
+        for (int x = fieldSide; x < fieldSide + 16; x++) {
+            tail.add(BlockPos.asLong(x, 64, 0), NetworkGraph.HORIZONTAL_CONNECTIONS);
+        }
+
+        tailRoot = BlockPos.asLong(fieldSide, 64, 0);
+        tailConnections = tail.getConnections(tailRoot);
+        tail.remove(tailRoot);
+    }
+
+    @Benchmark
+    public LongList splitLine() {
+        return line.findDetachedSeeds(lineCut, lineConnections);
+    }
+
+    @Benchmark
+    public LongList splitFields() {
+        return fields.findDetachedSeeds(bridge, bridgeConnections);
+    }
+
+    @Benchmark
+    public LongList splitTail() {
+        return tail.findDetachedSeeds(tailRoot, tailConnections);
+    }
+
+    private static void addSquare(@NotNull NetworkGraph graph, int offsetX, int side) {
+        for (int x = 0; x < side; x++) {
+            for (int z = 0; z < side; z++) {
+                graph.add(BlockPos.asLong(offsetX + x, 64, z), NetworkGraph.HORIZONTAL_CONNECTIONS);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.yanny.ytech.network.generic.server;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// building of position set for network of given size, memory is reported by gc profiler (`-prof gc`, gc.alloc.rate.norm)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NetworkPositionSetBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private long[] positions;
+
+    @Setup
+    public void setup() {
+        int side = (int) Math.sqrt(size);
+
+        positions = new long[side * side];
+
+        for (int x = 0; x < side; x++) {
+            for (int z = 0; z < side; z++) {
+                positions[x * side + z] = BlockPos.asLong(x, 64, z);
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<BlockPos> blockPosHashSet() {
+        Set<BlockPos> set = new HashSet<>();
+
+        for (long pos : positions) {
+            set.add(BlockPos.of(pos));
+        }
+
+        return set;
+    }
+
+    @Benchmark
+    public LongOpenHashSet longOpenHashSet() {
+        LongOpenHashSet set = new LongOpenHashSet();
+
+        for (long pos : positions) {
+            set.add(pos);
+        }
+
+        return set;
+    }
+}
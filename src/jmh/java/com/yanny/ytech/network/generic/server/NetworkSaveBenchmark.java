@@ -0,0 +1,145 @@
+package com.yanny.ytech.network.generic.server;
+
+import com.yanny.ytech.network.generic.NetworkUtils;
+import com.yanny.ytech.network.generic.common.INetworkBlockEntity;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
+
+// saving and loading of network positions through ServerNetwork, packed long arrays against legacy compound per position
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NetworkSaveBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private final HolderLookup.Provider provider = HolderLookup.Provider.create(Stream.empty());
+    private PositionNetwork network;
+    private byte[] legacyData;
+    private byte[] packedData;
+
+    @Setup
+    public void setup() throws IOException {
+        Map<Long, ListTag> chunks = new HashMap<>();
+        ListTag chunkMapTag = new ListTag();
+        CompoundTag legacyTag = new CompoundTag();
+        int side = (int) Math.sqrt(size);
+
+        // input in format of older saves, there is no save path for it anymore
+        for (int x = 0; x < side; x++) {
+            for (int z = 0; z < side; z++) {
+                CompoundTag posTag = new CompoundTag();
+
+                posTag.put("blockPos", NetworkUtils.saveBlockPos(new BlockPos(x, 64, z)));
+                posTag.putByte("connections", NetworkGraph.HORIZONTAL_CONNECTIONS);
+                chunks.computeIfAbsent(ChunkPos.asLong(x >> 4, z >> 4), (k) -> new ListTag()).add(posTag);
+            }
+        }
+
+        chunks.forEach((chunkPos, positions) -> {
+            CompoundTag chunkTag = new CompoundTag();
+
+            chunkTag.put("chunkPos", NetworkUtils.saveChunkPos(new ChunkPos(chunkPos)));
+            chunkTag.put("posMap", positions);
+            chunkMapTag.add(chunkTag);
+        });
+        legacyTag.put("chunkMap", chunkMapTag);
+
+        legacyData = write(legacyTag);
+        network = load(legacyData);
+        packedData = save();
+    }
+
+    @Benchmark
+    public byte[] save() throws IOException {
+        return write(network.save(provider));
+    }
+
+    @Benchmark
+    public PositionNetwork loadPacked() throws IOException {
+        return load(packedData);
+    }
+
+    @Benchmark
+    public PositionNetwork loadLegacy() throws IOException {
+        return load(legacyData);
+    }
+
+    @NotNull
+    private PositionNetwork load(byte[] data) throws IOException {
+        PositionNetwork loaded = new PositionNetwork(new NetworkIndex(new NetworkChunkIndex(), 0));
+
+        loaded.load(NbtIo.read(new DataInputStream(new ByteArrayInputStream(data))), provider);
+        return loaded;
+    }
+
+    @NotNull
+    private static byte[] write(@NotNull CompoundTag tag) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        NbtIo.write(tag, new DataOutputStream(stream));
+        return stream.toByteArray();
+    }
+
+    // only positions stored by ServerNetwork, network specific data needs loaded mod configuration
+    public static class PositionNetwork extends ServerNetwork<PositionNetwork, INetworkBlockEntity> {
+        PositionNetwork(@NotNull NetworkIndex networkIndex) {
+            super(0, (id) -> {}, (id, chunkPos) -> {}, networkIndex);
+        }
+
+        @Override
+        protected boolean canAttach(@NotNull INetworkBlockEntity blockEntity) {
+            return true;
+        }
+
+        @Override
+        protected boolean canAttach(@NotNull PositionNetwork network) {
+            return true;
+        }
+
+        @Override
+        protected void appendNetwork(@NotNull PositionNetwork network, @NotNull Level level) {}
+
+        @Override
+        protected boolean updateBlockEntity(@NotNull INetworkBlockEntity blockEntity) {
+            return false;
+        }
+
+        @Override
+        protected void detachBlockEntity(@NotNull INetworkBlockEntity blockEntity) {}
+
+        @NotNull
+        @Override
+        protected List<PositionNetwork> split(@NotNull IntSupplier idGetter, @NotNull BiConsumer<Integer, ChunkPos> onRemove,
+                                              @NotNull LongList detachedSeeds, @NotNull Level level) {
+            return List.of();
+        }
+
+        @Override
+        protected boolean isNotEmpty() {
+            return graph.size() > 0;
+        }
+
+        @Override
+        protected boolean isValidPosition(@NotNull INetworkBlockEntity blockEntity, @NotNull BlockPos pos) {
+            return true;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.yanny.ytech;
 import com.mojang.logging.LogUtils;
 import com.yanny.ytech.configuration.block.GrassBedBlock;
 import com.yanny.ytech.configuration.recipe.TwoItemsRecipeInput;
+import com.yanny.ytech.network.generic.metrics.NetworkProfileCommand;
 import com.yanny.ytech.registration.YTechMobEffects;
 import com.yanny.ytech.registration.YTechRecipeTypes;
 import net.minecraft.client.multiplayer.ClientLevel;
@@ -21,14 +22,17 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
 import net.neoforged.fml.util.ObfuscationReflectionHelper;
+import net.neoforged.neoforge.event.RegisterCommandsEvent;
 import net.neoforged.neoforge.event.entity.living.LivingBreatheEvent;
 import net.neoforged.neoforge.event.entity.player.PlayerEvent;
 import net.neoforged.neoforge.event.entity.player.PlayerInteractEvent;
 import net.neoforged.neoforge.event.entity.player.PlayerSetSpawnEvent;
+import net.neoforged.neoforge.event.level.ChunkEvent;
 import net.neoforged.neoforge.event.level.ChunkWatchEvent;
 import net.neoforged.neoforge.event.level.LevelEvent;
 import net.neoforged.neoforge.event.server.ServerStartingEvent;
 import net.neoforged.neoforge.event.tick.LevelTickEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 
@@ -52,9 +56,9 @@ public class ForgeBusSubscriber {
         LevelAccessor levelAccessor = event.getLevel();
 
         if (levelAccessor instanceof ServerLevel level) {
-            YTechMod.IRRIGATION_PROPAGATOR.server().onLevelLoad(level);
+            YTechMod.NETWORK_REGISTRY.onLevelLoad(level);
         } else if (levelAccessor instanceof ClientLevel level) {
-            YTechMod.IRRIGATION_PROPAGATOR.client().onLevelLoad(level);
+            YTechMod.NETWORK_REGISTRY.onLevelLoad(level);
         }
     }
 
@@ -63,12 +67,17 @@ public class ForgeBusSubscriber {
         LevelAccessor levelAccessor = event.getLevel();
 
         if (levelAccessor instanceof ServerLevel level) {
-            YTechMod.IRRIGATION_PROPAGATOR.server().onLevelUnload(level);
+            YTechMod.NETWORK_REGISTRY.onLevelUnload(level);
         } else if (levelAccessor instanceof ClientLevel level) {
-            YTechMod.IRRIGATION_PROPAGATOR.client().onLevelUnload(level);
+            YTechMod.NETWORK_REGISTRY.onLevelUnload(level);
         }
     }
 
+    @SubscribeEvent
+    public static void onRegisterCommands(@NotNull RegisterCommandsEvent event) {
+        NetworkProfileCommand.register(event.getDispatcher());
+    }
+
     @SubscribeEvent
     public static void onServerStarting(@NotNull ServerStartingEvent event) {
         if (YTechMod.CONFIGURATION.shouldRequireValidTool()) {
@@ -78,26 +87,44 @@ public class ForgeBusSubscriber {
 
     @SubscribeEvent
     public static void onPlayerLogIn(@NotNull PlayerEvent.PlayerLoggedInEvent event) {
-        YTechMod.IRRIGATION_PROPAGATOR.server().onPlayerLogIn(event.getEntity());
+        YTechMod.NETWORK_REGISTRY.onPlayerLogIn(event.getEntity());
     }
 
     @SubscribeEvent
     public static void onLevelPreTick(@NotNull LevelTickEvent.Pre event) {
         if (event.getLevel() instanceof ServerLevel level) {
-            YTechMod.IRRIGATION_PROPAGATOR.server().getNetworks(level).values().forEach((network) -> network.tick(level));
+            YTechMod.NETWORK_REGISTRY.preTick(level);
         }
     }
 
     @SubscribeEvent
     public static void onLevelPostTick(@NotNull LevelTickEvent.Post event) {
         if (event.getLevel() instanceof ServerLevel level) {
-            YTechMod.IRRIGATION_PROPAGATOR.server().tick(level);
+            YTechMod.NETWORK_REGISTRY.tick(level);
+        }
+    }
+
+    // network updates of all levels and types are sent once per tick
+    @SubscribeEvent
+    public static void onServerPostTick(@NotNull ServerTickEvent.Post event) {
+        YTechMod.NETWORK_REGISTRY.flush();
+    }
+
+    @SubscribeEvent
+    public static void onChunkLoad(@NotNull ChunkEvent.Load event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            YTechMod.NETWORK_REGISTRY.onChunkLoad(level, event.getChunk().getPos());
         }
     }
 
     @SubscribeEvent
     public static void onChunkWatch(@NotNull ChunkWatchEvent.Watch event) {
-        YTechMod.IRRIGATION_PROPAGATOR.server().onChunkWatch(event.getLevel(), event.getPlayer(), event.getChunk());
+        YTechMod.NETWORK_REGISTRY.onChunkWatch(event.getLevel(), event.getPlayer(), event.getChunk());
+    }
+
+    @SubscribeEvent
+    public static void onChunkUnWatch(@NotNull ChunkWatchEvent.UnWatch event) {
+        YTechMod.NETWORK_REGISTRY.onChunkUnWatch(event.getLevel(), event.getPlayer(), event.getPos());
     }
 
     @SubscribeEvent
@@ -16,6 +16,7 @@ import com.yanny.ytech.configuration.tooltip.ClientBasketTooltip;
 import com.yanny.ytech.network.irrigation.IrrigationServerNetwork;
 import com.yanny.ytech.network.irrigation.IrrigationUtils;
 import com.yanny.ytech.registration.*;
+import net.minecraft.client.renderer.block.BlockModelShaper;
 import net.minecraft.client.renderer.entity.ThrownItemRenderer;
 import net.minecraft.client.renderer.item.ItemProperties;
 import net.minecraft.client.resources.model.BakedModel;
@@ -53,7 +54,8 @@ import static com.yanny.ytech.configuration.model.SpearModel.*;
 
 @EventBusSubscriber(modid = YTechMod.MOD_ID, bus = EventBusSubscriber.Bus.MOD)
 public class ModBusSubscriber {
-    private static final String PROTOCOL_VERSION = "1";
+    // must change with every payload format change, so mismatched client and server refuse to connect
+    private static final String PROTOCOL_VERSION = "3";
 
     @SubscribeEvent
     public static void commonSetupEvent(@NotNull FMLCommonSetupEvent event) {
@@ -184,6 +186,18 @@ public class ModBusSubscriber {
                 modelRegistry.put(modelLocation, new CustomRendererBakedModel(existingModel));
             }
         });
+
+        // water is rendered by block entity renderer otherwise
+        if (YTechMod.CONFIGURATION.isChunkWaterRendering()) {
+            YTechBlocks.AQUEDUCT.get().getStateDefinition().getPossibleStates().forEach((state) -> {
+                ModelResourceLocation modelLocation = BlockModelShaper.stateToModelLocation(state);
+                BakedModel existingModel = modelRegistry.get(modelLocation);
+
+                if (existingModel != null) {
+                    modelRegistry.put(modelLocation, new AqueductWaterBakedModel(existingModel));
+                }
+            });
+        }
     }
 
     @SubscribeEvent
@@ -205,7 +219,7 @@ public class ModBusSubscriber {
     public static void registerPayloadHandler(final RegisterPayloadHandlersEvent event) {
         final PayloadRegistrar registrar = event.registrar(PROTOCOL_VERSION);
 
-        YTechMod.IRRIGATION_PROPAGATOR = IrrigationUtils.registerIrrigationPropagator(registrar);
+        YTechMod.IRRIGATION_PROPAGATOR = YTechMod.NETWORK_REGISTRY.register(IrrigationUtils.registerIrrigationPropagator(registrar));
     }
 
     public static boolean removeAnimalPredicate(EntityType<? extends Animal> pAnimal, LevelAccessor pLevel, MobSpawnType pSpawnType, BlockPos pPos, RandomSource pRandom) {
@@ -2,11 +2,15 @@ package com.yanny.ytech;
 
 import com.yanny.ytech.configuration.YTechConfigSpec;
 import com.yanny.ytech.generation.DataGeneration;
+import com.yanny.ytech.network.generic.NetworkRegistry;
 import com.yanny.ytech.network.generic.client.ClientPropagator;
+import com.yanny.ytech.network.generic.metrics.NetworkMetrics;
 import com.yanny.ytech.network.generic.server.ServerPropagator;
 import com.yanny.ytech.network.irrigation.IIrrigationBlockEntity;
 import com.yanny.ytech.network.irrigation.IrrigationClientNetwork;
 import com.yanny.ytech.network.irrigation.IrrigationServerNetwork;
+import com.yanny.ytech.network.irrigation.IrrigationTickScheduler;
+import com.yanny.ytech.network.irrigation.RainExposureTracker;
 import com.yanny.ytech.registration.*;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.IEventBus;
@@ -21,6 +25,10 @@ import org.apache.commons.lang3.tuple.Pair;
 public class YTechMod {
     public static final String MOD_ID = "ytech";
     public static DistHolder<ClientPropagator<IrrigationClientNetwork, IIrrigationBlockEntity>, ServerPropagator<IrrigationServerNetwork, IIrrigationBlockEntity>> IRRIGATION_PROPAGATOR;
+    public static final NetworkRegistry NETWORK_REGISTRY = new NetworkRegistry();
+    public static final NetworkMetrics NETWORK_METRICS = new NetworkMetrics();
+    public static final RainExposureTracker RAIN_EXPOSURE_TRACKER = NETWORK_REGISTRY.register(new RainExposureTracker());
+    public static final IrrigationTickScheduler IRRIGATION_TICK_SCHEDULER = NETWORK_REGISTRY.register(new IrrigationTickScheduler());
     public static final YTechConfigSpec CONFIGURATION;
     private static final ModConfigSpec CONFIGURATION_SPEC;
 
@@ -58,6 +66,7 @@ public class YTechMod {
 
     public static void clientStuff(final IEventBus modEventBus) {
         modEventBus.addListener(Registration::addItemColors);
+        modEventBus.addListener(Registration::addBlockColors);
     }
 
     public record DistHolder<Client, Server>(
@@ -34,8 +34,15 @@ public class YTechConfigSpec {
     @NotNull private final ModConfigSpec.ConfigValue<Integer> valveFillPerNthTick;
     @NotNull private final ModConfigSpec.ConfigValue<Integer> hydratorDrainAmount;
     @NotNull private final ModConfigSpec.ConfigValue<Integer> hydratorDrainPerNthTick;
+    @NotNull private final ModConfigSpec.ConfigValue<Integer> hydratorStateWindow;
+    @NotNull private final ModConfigSpec.ConfigValue<Double> syncFillStep;
+    @NotNull private final ModConfigSpec.ConfigValue<Integer> syncMaxInterval;
+    @NotNull private final ModConfigSpec.ConfigValue<Boolean> asyncNetworkGraph;
+    @NotNull private final ModConfigSpec.ConfigValue<Boolean> segmentFlowModel;
+    @NotNull private final ModConfigSpec.ConfigValue<Integer> flowPerNthTick;
     @NotNull private final ModConfigSpec.ConfigValue<Integer> fertilizerDuration;
     @NotNull private final ModConfigSpec.ConfigValue<Integer> applyFertilizerChance;
+    @NotNull private final ModConfigSpec.ConfigValue<Boolean> chunkWaterRendering;
 
     private final ModConfigSpec.ConfigValue<Integer> minBreedingGenerations;
     private final ModConfigSpec.DoubleValue domesticChance;
@@ -81,6 +88,24 @@ public class YTechConfigSpec {
                         .worldRestart().defineInRange("hydratorDrainAmount", 100, 1, Integer.MAX_VALUE);
                 hydratorDrainPerNthTick = builder.comment("How often should be drained aqueduct thru hydrator (1 - every tick, 20 - every second)")
                         .worldRestart().defineInRange("hydratorDrainPerNthTick", 200, 1, Integer.MAX_VALUE);
+                hydratorStateWindow = builder.comment("Minimal delay between visible changes of hydrator state in ticks, hydrator stops hydrating only when it wasn't supplied for whole delay (0 - immediately)")
+                        .defineInRange("hydratorStateWindow", 100, 0, Integer.MAX_VALUE);
+            builder.pop();
+            builder.push("sync");
+                syncFillStep = builder.comment("Minimal change of aqueduct fill fraction that is immediately sent to clients (0.05 - every 5%)")
+                        .worldRestart().defineInRange("syncFillStep", 0.05, Double.MIN_NORMAL, 1.0);
+                syncMaxInterval = builder.comment("Maximal delay of sending smaller fill changes to clients in ticks (20 - every second)")
+                        .worldRestart().defineInRange("syncMaxInterval", 100, 1, Integer.MAX_VALUE);
+            builder.pop();
+            builder.push("graph");
+                asyncNetworkGraph = builder.comment("Compute network splitting after block removal on worker threads and apply it at start of next tick")
+                        .define("asyncNetworkGraph", false);
+            builder.pop();
+            builder.push("flow");
+                segmentFlowModel = builder.comment("If water should spread thru aqueduct over time instead of filling whole network at once")
+                        .worldRestart().define("segmentFlowModel", false);
+                flowPerNthTick = builder.comment("How often flows water to neighbor aqueduct blocks (1 - every tick, 20 - every second)")
+                        .worldRestart().defineInRange("flowPerNthTick", 10, 1, Integer.MAX_VALUE);
             builder.pop();
             builder.push("fertilizer");
                 fertilizerDuration = builder.comment("How long last single piece of fertilizer")
@@ -88,6 +113,10 @@ public class YTechConfigSpec {
                 applyFertilizerChance = builder.comment("How often should be applied bone meal effect (1 / n chance per tick)")
                         .worldRestart().defineInRange("applyFertilizerChance", 60, 1, Integer.MAX_VALUE);
             builder.pop();
+            builder.push("render");
+                chunkWaterRendering = builder.comment("If aqueduct water should be rendered with terrain instead of block entity renderer, re-rendered only when fill level changes by 1/16")
+                        .worldRestart().define("chunkWaterRendering", false);
+            builder.pop();
         builder.pop();
         builder.push("wildAnimalsBreeding");
             minBreedingGenerations = builder.comment("Minimum generations for domestic animal breeding result")
@@ -149,6 +178,10 @@ public class YTechConfigSpec {
         return hydratorDrainPerNthTick.get();
     }
 
+    public int getHydratorStateWindow() {
+        return hydratorStateWindow.get();
+    }
+
     public int getRainingFillPerNthTick() {
         return rainingFillPerNthTick.get();
     }
@@ -157,6 +190,26 @@ public class YTechConfigSpec {
         return validBlockForRaining.get();
     }
 
+    public double getSyncFillStep() {
+        return syncFillStep.get();
+    }
+
+    public int getSyncMaxInterval() {
+        return syncMaxInterval.get();
+    }
+
+    public boolean isAsyncNetworkGraph() {
+        return asyncNetworkGraph.get();
+    }
+
+    public boolean useSegmentFlowModel() {
+        return segmentFlowModel.get();
+    }
+
+    public int getFlowPerNthTick() {
+        return flowPerNthTick.get();
+    }
+
     public int getFertilizerDuration() {
         return fertilizerDuration.get();
     }
@@ -165,6 +218,10 @@ public class YTechConfigSpec {
         return applyFertilizerChance.get();
     }
 
+    public boolean isChunkWaterRendering() {
+        return chunkWaterRendering.get();
+    }
+
     public int getMinBreedingGenerations() {
         return minBreedingGenerations.get();
     }
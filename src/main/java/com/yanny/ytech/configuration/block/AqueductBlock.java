@@ -17,7 +17,6 @@ import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.sounds.SoundEvent;
 import net.minecraft.util.Mth;
-import net.minecraft.util.RandomSource;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.player.Player;
@@ -201,7 +200,7 @@ public class AqueductBlock extends IrrigationBlock implements BucketPickup, Liqu
                 double multiplier = 0.5;
 
                 if (level.isClientSide) {
-                    IrrigationClientNetwork network = YTechMod.IRRIGATION_PROPAGATOR.client().getNetwork(aqueductBlockEntity);
+                    IrrigationClientNetwork network = aqueductBlockEntity.getClientNetwork();
 
                     if (network != null && network.getCapacity() > 0) {
                         multiplier = Mth.clamp((1 - network.getAmount() / (double) network.getCapacity()) * 0.5, 0, 0.5);
@@ -237,18 +236,6 @@ public class AqueductBlock extends IrrigationBlock implements BucketPickup, Liqu
         return false;
     }
 
-    @Override
-    public boolean isRandomlyTicking(@NotNull BlockState state) {
-        return true;
-    }
-
-    @Override
-    public void randomTick(@NotNull BlockState state, @NotNull ServerLevel level, @NotNull BlockPos pos, @NotNull RandomSource random) {
-        if (level.getBlockEntity(pos) instanceof AqueductBlockEntity blockEntity) {
-            blockEntity.onRandomTick();
-        }
-    }
-
     @Override
     public List<BlockPos> getValidNeighbors(@NotNull BlockState blockState, @NotNull BlockPos pos) {
         return Direction.Plane.HORIZONTAL.stream().map((dir) -> pos.offset(dir.getNormal())).toList();
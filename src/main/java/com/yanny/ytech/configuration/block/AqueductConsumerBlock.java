@@ -5,7 +5,6 @@ import com.yanny.ytech.configuration.block_entity.AqueductConsumerBlockEntity;
 import com.yanny.ytech.network.irrigation.IrrigationServerNetwork;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
-import net.minecraft.server.level.ServerLevel;
 import net.minecraft.sounds.SoundEvents;
 import net.minecraft.sounds.SoundSource;
 import net.minecraft.util.RandomSource;
@@ -125,10 +124,4 @@ public abstract class AqueductConsumerBlock extends IrrigationBlock {
     protected void createBlockStateDefinition(@NotNull StateDefinition.Builder<Block, BlockState> stateBuilder) {
         stateBuilder.add(EAST).add(WEST).add(SOUTH).add(NORTH).add(WATERLOGGED);
     }
-
-    protected static void createAqueductConsumerTicker(@NotNull Level level, @NotNull BlockEntity blockEntity) {
-        if (blockEntity instanceof AqueductConsumerBlockEntity block) {
-            block.tick((ServerLevel) level);
-        }
-    }
 }
@@ -12,6 +12,7 @@ import net.minecraft.data.recipes.RecipeCategory;
 import net.minecraft.data.recipes.RecipeOutput;
 import net.minecraft.data.recipes.RecipeProvider;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.InteractionResult;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.Level;
@@ -50,7 +51,7 @@ public class AqueductFertilizerBlock extends AqueductHydratorBlock {
     @Override
     public <T extends BlockEntity> BlockEntityTicker<T> getTicker(@NotNull Level level, @NotNull BlockState state, @NotNull BlockEntityType<T> entityType) {
         if (!level.isClientSide) {
-            return (level1, pos, state1, blockEntity) -> AqueductConsumerBlock.createAqueductConsumerTicker(level1, blockEntity);
+            return (level1, pos, state1, blockEntity) -> createFertilizerTicker(level1, blockEntity);
         } else {
             return null;
         }
@@ -136,4 +137,10 @@ public class AqueductFertilizerBlock extends AqueductHydratorBlock {
                 .unlockedBy(Utils.getHasName(), RecipeProvider.has(YTechItemTags.TERRACOTTA_BRICKS))
                 .save(recipeConsumer, Utils.modLoc(YTechBlocks.AQUEDUCT_FERTILIZER));
     }
+
+    private static void createFertilizerTicker(@NotNull Level level, @NotNull BlockEntity blockEntity) {
+        if (blockEntity instanceof AqueductFertilizerBlockEntity block) {
+            block.tick((ServerLevel) level);
+        }
+    }
 }
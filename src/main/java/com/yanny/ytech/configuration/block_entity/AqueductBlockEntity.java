@@ -2,16 +2,29 @@ package com.yanny.ytech.configuration.block_entity;
 
 import com.yanny.ytech.YTechMod;
 import com.yanny.ytech.configuration.block.AqueductBlock;
+import com.yanny.ytech.network.generic.client.IClientNetworkListener;
+import com.yanny.ytech.network.irrigation.IrrigationClientNetwork;
 import com.yanny.ytech.network.irrigation.NetworkType;
 import com.yanny.ytech.registration.YTechBlockEntityTypes;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Holder;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
 import net.minecraft.world.level.biome.Biome;
 import net.minecraft.world.level.block.state.BlockState;
+import net.neoforged.neoforge.client.model.data.ModelData;
+import net.neoforged.neoforge.client.model.data.ModelProperty;
 import org.jetbrains.annotations.NotNull;
 
-public class AqueductBlockEntity extends IrrigationBlockEntity {
+public class AqueductBlockEntity extends IrrigationBlockEntity implements IClientNetworkListener {
+    // quantized fill level of water rendered with terrain, 0 - no water
+    public static final ModelProperty<Integer> WATER_LEVEL = new ModelProperty<>();
+    public static final int WATER_LEVELS = 16;
+    private static final int NOT_LISTENING = Integer.MIN_VALUE;
+
+    private int waterLevel = 0;
+    // client only, network id under which this is registered as client network listener
+    private int listenedNetworkId = NOT_LISTENING;
 
     public AqueductBlockEntity(@NotNull BlockPos pos, @NotNull BlockState blockState) {
         super(YTechBlockEntityTypes.AQUEDUCT.get(), pos, blockState, ((AqueductBlock)blockState.getBlock()).getValidNeighbors(blockState, pos));
@@ -38,7 +51,70 @@ public class AqueductBlockEntity extends IrrigationBlockEntity {
         return false;
     }
 
-    public void onRandomTick() {
-        YTechMod.IRRIGATION_PROPAGATOR.server().changed(this);
+    @Override
+    public void onLoad() {
+        super.onLoad();
+
+        if (level instanceof ServerLevel serverLevel) {
+            YTechMod.RAIN_EXPOSURE_TRACKER.track(serverLevel, this);
+        } else if (level != null && YTechMod.CONFIGURATION.isChunkWaterRendering()) {
+            listenedNetworkId = networkId;
+            YTechMod.IRRIGATION_PROPAGATOR.client().addListener(listenedNetworkId, this);
+            onClientNetworkChanged();
+        }
+    }
+
+    @Override
+    public void setRemoved() {
+        if (level instanceof ServerLevel serverLevel) {
+            YTechMod.RAIN_EXPOSURE_TRACKER.untrack(serverLevel, this);
+        } else if (listenedNetworkId != NOT_LISTENING) {
+            YTechMod.IRRIGATION_PROPAGATOR.client().removeListener(listenedNetworkId, this);
+            listenedNetworkId = NOT_LISTENING;
+        }
+
+        super.setRemoved();
+    }
+
+    // section is re-meshed only when quantized fill level changes
+    @Override
+    public void onClientNetworkChanged() {
+        int waterLevel = getWaterLevel();
+
+        if (waterLevel != this.waterLevel && level != null) {
+            this.waterLevel = waterLevel;
+            requestModelDataUpdate();
+            level.setBlocksDirty(worldPosition, getBlockState(), getBlockState());
+        }
+    }
+
+    @NotNull
+    @Override
+    public ModelData getModelData() {
+        return ModelData.builder().with(WATER_LEVEL, waterLevel).build();
+    }
+
+    @Override
+    protected void onNetworkIdLoaded() {
+        // block moved to other network, listens to it from now
+        if (listenedNetworkId != NOT_LISTENING && listenedNetworkId != networkId) {
+            YTechMod.IRRIGATION_PROPAGATOR.client().removeListener(listenedNetworkId, this);
+            listenedNetworkId = networkId;
+            YTechMod.IRRIGATION_PROPAGATOR.client().addListener(listenedNetworkId, this);
+        }
+
+        if (level != null && level.isClientSide && YTechMod.CONFIGURATION.isChunkWaterRendering()) {
+            onClientNetworkChanged();
+        }
+    }
+
+    private int getWaterLevel() {
+        IrrigationClientNetwork network = getClientNetwork();
+
+        if (network == null || network.getCapacity() <= 0 || network.getAmount() <= 0) {
+            return 0;
+        }
+
+        return Mth.clamp(Mth.ceil(network.getAmount() * WATER_LEVELS / (double) network.getCapacity()), 1, WATER_LEVELS);
     }
 }
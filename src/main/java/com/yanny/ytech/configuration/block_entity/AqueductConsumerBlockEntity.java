@@ -2,16 +2,16 @@ package com.yanny.ytech.configuration.block_entity;
 
 import com.yanny.ytech.YTechMod;
 import com.yanny.ytech.configuration.block.AqueductConsumerBlock;
+import com.yanny.ytech.network.irrigation.IIrrigationConsumer;
 import com.yanny.ytech.network.irrigation.NetworkType;
 import net.minecraft.core.BlockPos;
-import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.block.state.properties.BlockStateProperties;
 import org.jetbrains.annotations.NotNull;
 
-public abstract class AqueductConsumerBlockEntity extends IrrigationBlockEntity {
+public abstract class AqueductConsumerBlockEntity extends IrrigationBlockEntity implements IIrrigationConsumer {
     public AqueductConsumerBlockEntity(@NotNull BlockEntityType<? extends BlockEntity> entityType, @NotNull BlockPos pos, @NotNull BlockState blockState) {
         super(entityType, pos, blockState, ((AqueductConsumerBlock) blockState.getBlock()).getValidNeighbors(blockState, pos));
     }
@@ -40,6 +40,4 @@ public abstract class AqueductConsumerBlockEntity extends IrrigationBlockEntity
     public boolean isHydrating() {
         return getBlockState().getValue(BlockStateProperties.WATERLOGGED);
     }
-
-    public abstract void tick(@NotNull ServerLevel level);
 }
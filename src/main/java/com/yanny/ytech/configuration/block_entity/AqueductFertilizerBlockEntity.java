@@ -5,7 +5,10 @@ import com.yanny.ytech.configuration.MachineItemStackHandler;
 import com.yanny.ytech.configuration.container.AqueductFertilizerMenu;
 import com.yanny.ytech.registration.YTechBlockEntityTypes;
 import com.yanny.ytech.registration.YTechItemTags;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.core.particles.ParticleTypes;
 import net.minecraft.nbt.CompoundTag;
@@ -27,10 +30,19 @@ import org.jetbrains.annotations.Nullable;
 public class AqueductFertilizerBlockEntity extends AqueductHydratorBlockEntity implements MenuProvider, IMenuBlockEntity {
     private static final String TAG_FERTILIZER = "fertilizer";
     private static final String TAG_ITEMS = "items";
+    private static final int RADIUS = 4;
+    private static final int AREA = (2 * RADIUS + 1) * (2 * RADIUS + 1);
+    // crops planted or harvested further than neighbor don't notify fertilizer
+    private static final int TARGETS_REFRESH_PER_NTH_TICK = 600;
+    private static final long NOT_SCHEDULED = -1;
 
     @NotNull protected final MachineItemStackHandler itemStackHandler;
     @NotNull protected final ContainerData containerData;
     private int fertilizer = 0;
+    // bonemealable positions in area, fertilizer is applied only on them
+    @Nullable private LongList targets = null;
+    private long targetsTime = 0;
+    private long nextApplyTime = NOT_SCHEDULED;
 
     public AqueductFertilizerBlockEntity(@NotNull BlockPos pos, @NotNull BlockState blockState) {
         super(YTechBlockEntityTypes.AQUEDUCT_FERTILIZER.get(), pos, blockState);
@@ -48,10 +60,7 @@ public class AqueductFertilizerBlockEntity extends AqueductHydratorBlockEntity i
         }
     }
 
-    @Override
     public void tick(@NotNull ServerLevel level) {
-        super.tick(level);
-
         if (isHydrating()) {
             if ((fertilizer == 0) && level.getGameTime() % 20 == 0) {
                 if (useFertilizer()) {
@@ -71,39 +80,18 @@ public class AqueductFertilizerBlockEntity extends AqueductHydratorBlockEntity i
                 }
             }
 
-            if (fertilizer > 0 && level.random.nextInt(YTechMod.CONFIGURATION.getApplyFertilizerChance()) == 0) {
-                int x = worldPosition.getX();
-                int y = worldPosition.getY();
-                int z = worldPosition.getZ();
-                BlockPos randomPos = BlockPos.randomBetweenClosed(level.random, 1, x - 4, y, z - 4, x + 4, y, z + 4).iterator().next();
-
-                if (randomPos != null) {
-                    BlockState state = level.getBlockState(randomPos);
-
-                    if (state.getBlock() instanceof FarmBlock) {
-                        randomPos = randomPos.above();
-                        state = level.getBlockState(randomPos); //apply to crop
-                    }
-
-                    if (state.getBlock() instanceof BonemealableBlock bonemealableBlock) {
-                        if (bonemealableBlock.isValidBonemealTarget(level, randomPos, state)) {
-                            if (bonemealableBlock.isBonemealSuccess(level, level.random, randomPos, state)) {
-                                bonemealableBlock.performBonemeal(level, level.random, randomPos, state);
-                                level.sendParticles(
-                                        ParticleTypes.HAPPY_VILLAGER,
-                                        randomPos.getX() + 0.5, randomPos.getY() + 0.5, randomPos.getZ() + 0.5,
-                                        10,
-                                        0, 0, 0,
-                                        0
-                                );
-                            }
-                        }
-                    }
-                }
+            if (fertilizer > 0) {
+                applyFertilizer(level);
             }
         }
     }
 
+    @Override
+    public void neighborChanged() {
+        super.neighborChanged();
+        targets = null;
+    }
+
     @NotNull
     @Override
     public Component getDisplayName() {
@@ -154,4 +142,74 @@ public class AqueductFertilizerBlockEntity extends AqueductHydratorBlockEntity i
     private boolean useFertilizer() {
         return !itemStackHandler.extractItem(0, 1, false).isEmpty();
     }
+
+    // same odds as rolling 1/applyFertilizerChance every tick for random position in area, but rolled only for cached targets
+    private void applyFertilizer(@NotNull ServerLevel level) {
+        long gameTime = level.getGameTime();
+
+        if (targets == null || gameTime - targetsTime >= TARGETS_REFRESH_PER_NTH_TICK) {
+            targets = findTargets(level);
+            targetsTime = gameTime;
+            nextApplyTime = NOT_SCHEDULED;
+        }
+
+        if (nextApplyTime == NOT_SCHEDULED || nextApplyTime < gameTime) {
+            schedule(level, targets.size(), gameTime);
+        } else if (nextApplyTime == gameTime) {
+            int index = level.random.nextInt(targets.size());
+            BlockPos pos = BlockPos.of(targets.getLong(index));
+            BlockState state = level.getBlockState(pos);
+
+            if (state.getBlock() instanceof BonemealableBlock bonemealableBlock) {
+                if (bonemealableBlock.isValidBonemealTarget(level, pos, state) && bonemealableBlock.isBonemealSuccess(level, level.random, pos, state)) {
+                    bonemealableBlock.performBonemeal(level, level.random, pos, state);
+                    level.sendParticles(ParticleTypes.HAPPY_VILLAGER, pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5, 10, 0, 0, 0, 0);
+                }
+            } else {
+                targets.removeLong(index);
+            }
+
+            schedule(level, targets.size(), gameTime);
+        }
+    }
+
+    // geometric distribution of ticks to next application
+    private void schedule(@NotNull ServerLevel level, int targetCount, long gameTime) {
+        double chance = targetCount / (double) (AREA * YTechMod.CONFIGURATION.getApplyFertilizerChance());
+
+        if (chance <= 0) {
+            nextApplyTime = NOT_SCHEDULED;
+        } else if (chance >= 1) {
+            nextApplyTime = gameTime + 1;
+        } else {
+            nextApplyTime = gameTime + 1 + (long) (Math.log(1 - level.random.nextDouble()) / Math.log(1 - chance));
+        }
+    }
+
+    @NotNull
+    private LongList findTargets(@NotNull ServerLevel level) {
+        LongList positions = new LongArrayList();
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            for (int z = -RADIUS; z <= RADIUS; z++) {
+                pos.set(worldPosition.getX() + x, worldPosition.getY(), worldPosition.getZ() + z);
+
+                if (level.isLoaded(pos)) {
+                    BlockState state = level.getBlockState(pos);
+
+                    if (state.getBlock() instanceof FarmBlock) {
+                        pos.move(Direction.UP);
+                        state = level.getBlockState(pos); //apply to crop
+                    }
+
+                    if (state.getBlock() instanceof BonemealableBlock) {
+                        positions.add(pos.asLong());
+                    }
+                }
+            }
+        }
+
+        return positions;
+    }
 }
@@ -1,83 +1,92 @@
 package com.yanny.ytech.configuration.block_entity;
 
 import com.yanny.ytech.YTechMod;
-import com.yanny.ytech.network.irrigation.IrrigationServerNetwork;
+import com.yanny.ytech.network.irrigation.IrrigationUtils;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.block.Block;
-import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.block.state.properties.BlockStateProperties;
-import net.minecraft.world.level.material.Fluids;
-import net.neoforged.neoforge.fluids.FluidStack;
-import net.neoforged.neoforge.fluids.capability.IFluidHandler;
 import org.jetbrains.annotations.NotNull;
 
 public class AqueductHydratorBlockEntity extends AqueductConsumerBlockEntity {
     private static final String TAG_TIMER = "timer";
+    private static final String TAG_SUPPLIED = "supplied";
+    private static final String TAG_SUPPLIED_CHANGE_TIME = "suppliedChangeTime";
+    private static final String TAG_STATE_CHANGE_TIME = "stateChangeTime";
 
     protected int timer = 0;
+    // supply state is buffered, visible (waterlogged) state follows it at most once per configured window
+    private boolean supplied;
+    private long suppliedChangeTime = 0;
+    private long stateChangeTime = 0;
 
     public AqueductHydratorBlockEntity(@NotNull BlockEntityType<? extends BlockEntity> entityType, @NotNull BlockPos pos, @NotNull BlockState blockState) {
         super(entityType, pos, blockState);
+        supplied = blockState.getValue(BlockStateProperties.WATERLOGGED);
     }
 
     @Override
     public void loadAdditional(@NotNull CompoundTag tag, @NotNull HolderLookup.Provider provider) {
         super.loadAdditional(tag, provider);
         timer = tag.getInt(TAG_TIMER);
-    }
 
-    public void tick(@NotNull ServerLevel level) {
-        if ((!isHydrating() || timer == 0) && level.getGameTime() % 20 == 0) {
-            if (drainLiquid(level)) {
-                BlockState blockState = getBlockState().setValue(BlockStateProperties.WATERLOGGED, true);
+        // older saves have no hysteresis state, supply follows visible state
+        if (tag.contains(TAG_SUPPLIED)) {
+            supplied = tag.getBoolean(TAG_SUPPLIED);
+            suppliedChangeTime = tag.getLong(TAG_SUPPLIED_CHANGE_TIME);
+            stateChangeTime = tag.getLong(TAG_STATE_CHANGE_TIME);
+        }
+    }
 
-                timer = YTechMod.CONFIGURATION.getHydratorDrainPerNthTick();
-                level.setBlock(worldPosition, blockState, Block.UPDATE_ALL);
-                YTechMod.IRRIGATION_PROPAGATOR.server().changed(this);
-            }
-        } else if (timer > 0) {
-            timer--;
+    @Override
+    public int getDemand(@NotNull ServerLevel level, int elapsedTicks) {
+        if (timer > elapsedTicks) {
+            timer -= elapsedTicks;
+            setChanged();
+            updateState(level);
+            return 0;
+        }
 
-            if (timer == 0) {
-                if (!drainLiquid(level)) {
-                    BlockState blockState = getBlockState().setValue(BlockStateProperties.WATERLOGGED, false);
+        return YTechMod.CONFIGURATION.getHydratorDrainAmount();
+    }
 
-                    level.setBlock(worldPosition, blockState, Block.UPDATE_ALL);
-                    YTechMod.IRRIGATION_PROPAGATOR.server().changed(this);
-                } else {
-                    timer = YTechMod.CONFIGURATION.getHydratorDrainPerNthTick();
-                }
-            } else {
-                setChanged(level, worldPosition, Blocks.AIR.defaultBlockState());
-            }
+    @Override
+    public void onServed(@NotNull ServerLevel level, boolean served) {
+        if (supplied != served) {
+            supplied = served;
+            suppliedChangeTime = level.getGameTime();
+            YTechMod.NETWORK_METRICS.increment(IrrigationUtils.NETWORK_NAME, "hydratorSupplyChanges");
         }
+
+        timer = served ? YTechMod.CONFIGURATION.getHydratorDrainPerNthTick() : 0;
+        setChanged();
+        updateState(level);
     }
 
     @Override
     protected void saveAdditional(@NotNull CompoundTag tag, @NotNull HolderLookup.Provider provider) {
         super.saveAdditional(tag, provider);
         tag.putInt(TAG_TIMER, timer);
+        tag.putBoolean(TAG_SUPPLIED, supplied);
+        tag.putLong(TAG_SUPPLIED_CHANGE_TIME, suppliedChangeTime);
+        tag.putLong(TAG_STATE_CHANGE_TIME, stateChangeTime);
     }
 
-    protected boolean drainLiquid(@NotNull ServerLevel level) {
-        IrrigationServerNetwork network = YTechMod.IRRIGATION_PROPAGATOR.server().getNetwork(this);
+    // hysteresis, hydrator starts hydrating right away but stops only when it wasn't supplied for whole window
+    private void updateState(@NotNull ServerLevel level) {
+        long gameTime = level.getGameTime();
+        int window = YTechMod.CONFIGURATION.getHydratorStateWindow();
 
-        if (network != null) {
-            int amount = YTechMod.CONFIGURATION.getHydratorDrainAmount();
-
-            if (network.getFluidHandler().drain(new FluidStack(Fluids.WATER, amount), IFluidHandler.FluidAction.SIMULATE).getAmount() == amount) {
-                network.getFluidHandler().drain(new FluidStack(Fluids.WATER, amount), IFluidHandler.FluidAction.EXECUTE);
-                setChanged(level, worldPosition, Blocks.AIR.defaultBlockState());
-                return true;
-            }
+        if (supplied != isHydrating() && gameTime - stateChangeTime >= window && (supplied || gameTime - suppliedChangeTime >= window)) {
+            stateChangeTime = gameTime;
+            level.setBlock(worldPosition, getBlockState().setValue(BlockStateProperties.WATERLOGGED, supplied), Block.UPDATE_ALL);
+            YTechMod.IRRIGATION_PROPAGATOR.server().changed(this);
+            YTechMod.NETWORK_METRICS.increment(IrrigationUtils.NETWORK_NAME, "hydratorStateUpdates");
         }
-
-        return false;
     }
 }
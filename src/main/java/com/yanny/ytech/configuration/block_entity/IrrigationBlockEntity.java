@@ -2,6 +2,7 @@ package com.yanny.ytech.configuration.block_entity;
 
 import com.yanny.ytech.YTechMod;
 import com.yanny.ytech.network.irrigation.IIrrigationBlockEntity;
+import com.yanny.ytech.network.irrigation.IrrigationClientNetwork;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.nbt.CompoundTag;
@@ -14,6 +15,7 @@ import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.level.block.state.BlockState;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 
@@ -24,6 +26,9 @@ public abstract class IrrigationBlockEntity extends BlockEntity implements IIrri
 
     protected int networkId = -1;
 
+    // client only, valid until network is replaced, removed or network id changes
+    @Nullable private IrrigationClientNetwork clientNetwork = null;
+
     public IrrigationBlockEntity(@NotNull BlockEntityType<? extends BlockEntity> entityType, @NotNull BlockPos pos, @NotNull BlockState blockState,
                                  @NotNull List<BlockPos> validNeighbors) {
         super(entityType, pos, blockState);
@@ -45,6 +50,15 @@ public abstract class IrrigationBlockEntity extends BlockEntity implements IIrri
         }
     }
 
+    @Nullable
+    public IrrigationClientNetwork getClientNetwork() {
+        if (clientNetwork == null || clientNetwork.isStale()) {
+            clientNetwork = YTechMod.IRRIGATION_PROPAGATOR.client().getNetwork(this);
+        }
+
+        return clientNetwork;
+    }
+
     @Override
     public @NotNull List<BlockPos> getValidNeighbors() {
         return validNeighbors;
@@ -71,6 +85,8 @@ public abstract class IrrigationBlockEntity extends BlockEntity implements IIrri
 
         if (tag.contains(NETWORK_ID)) {
             networkId = tag.getInt(NETWORK_ID);
+            clientNetwork = null;
+            onNetworkIdLoaded();
         }
     }
 
@@ -101,6 +117,8 @@ public abstract class IrrigationBlockEntity extends BlockEntity implements IIrri
     public void handleUpdateTag(@NotNull CompoundTag tag, @NotNull HolderLookup.Provider provider) {
         super.handleUpdateTag(tag, provider);
         networkId = tag.getInt(NETWORK_ID);
+        clientNetwork = null;
+        onNetworkIdLoaded();
     }
 
     @NotNull
@@ -113,6 +131,10 @@ public abstract class IrrigationBlockEntity extends BlockEntity implements IIrri
 
     }
 
+    protected void onNetworkIdLoaded() {
+
+    }
+
     @Override
     protected void saveAdditional(@NotNull CompoundTag tag, @NotNull HolderLookup.Provider provider) {
         super.saveAdditional(tag, provider);
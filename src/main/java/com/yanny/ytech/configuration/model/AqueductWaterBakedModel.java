@@ -0,0 +1,125 @@
+package com.yanny.ytech.configuration.model;
+
+import com.yanny.ytech.configuration.block_entity.AqueductBlockEntity;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.block.model.BakedQuad;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.resources.model.BakedModel;
+import net.minecraft.core.Direction;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.inventory.InventoryMenu;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.material.Fluids;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.neoforged.neoforge.client.ChunkRenderTypeSet;
+import net.neoforged.neoforge.client.extensions.common.IClientFluidTypeExtensions;
+import net.neoforged.neoforge.client.model.BakedModelWrapper;
+import net.neoforged.neoforge.client.model.data.ModelData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// aqueduct model with water surface meshed with terrain, same height as in AqueductRenderer
+@OnlyIn(Dist.CLIENT)
+public class AqueductWaterBakedModel extends BakedModelWrapper<BakedModel> {
+    private static final ChunkRenderTypeSet WATER_RENDER_TYPES = ChunkRenderTypeSet.of(RenderType.translucent());
+    // own height of falling water
+    private static final float WATER_HEIGHT = 8.0F / 9.0F;
+    private static final float WATER_DEPTH = 12.0F / 16.0F;
+    private static final int VERTEX_SIZE = 8;
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final int NORMAL_UP = 127 << 8;
+    private static final int NORMAL_DOWN = (-127 & 0xFF) << 8;
+
+    // meshed on section compile threads
+    @Nullable private volatile List<List<BakedQuad>> waterQuads = null;
+
+    public AqueductWaterBakedModel(@NotNull BakedModel existingModel) {
+        super(existingModel);
+    }
+
+    @NotNull
+    @Override
+    public List<BakedQuad> getQuads(@Nullable BlockState state, @Nullable Direction side, @NotNull RandomSource rand, @NotNull ModelData data, @Nullable RenderType renderType) {
+        int waterLevel = getWaterLevel(data);
+
+        if (waterLevel > 0 && renderType == RenderType.translucent()) {
+            List<BakedQuad> quads = side == null ? getWaterQuads().get(waterLevel) : List.of();
+
+            // wrapped model doesn't filter quads by render type
+            if (super.getRenderTypes(state, rand, data).contains(renderType)) {
+                List<BakedQuad> result = new ArrayList<>(super.getQuads(state, side, rand, data, renderType));
+
+                result.addAll(quads);
+                return result;
+            }
+
+            return quads;
+        }
+
+        return super.getQuads(state, side, rand, data, renderType);
+    }
+
+    @NotNull
+    @Override
+    public ChunkRenderTypeSet getRenderTypes(@NotNull BlockState state, @NotNull RandomSource rand, @NotNull ModelData data) {
+        ChunkRenderTypeSet renderTypes = super.getRenderTypes(state, rand, data);
+        return getWaterLevel(data) > 0 ? ChunkRenderTypeSet.union(renderTypes, WATER_RENDER_TYPES) : renderTypes;
+    }
+
+    @NotNull
+    private List<List<BakedQuad>> getWaterQuads() {
+        List<List<BakedQuad>> waterQuads = this.waterQuads;
+
+        // texture atlas is ready only after models are baked
+        if (waterQuads == null) {
+            TextureAtlasSprite sprite = Minecraft.getInstance().getModelManager().getAtlas(InventoryMenu.BLOCK_ATLAS)
+                    .getSprite(IClientFluidTypeExtensions.of(Fluids.WATER).getStillTexture());
+
+            waterQuads = new ArrayList<>(AqueductBlockEntity.WATER_LEVELS + 1);
+
+            for (int i = 0; i <= AqueductBlockEntity.WATER_LEVELS; i++) {
+                float height = WATER_HEIGHT - WATER_DEPTH + i / (float) AqueductBlockEntity.WATER_LEVELS * WATER_DEPTH;
+
+                // surface is visible from below too
+                waterQuads.add(List.of(createQuad(sprite, height, false), createQuad(sprite, height, true)));
+            }
+
+            this.waterQuads = waterQuads;
+        }
+
+        return waterQuads;
+    }
+
+    private static int getWaterLevel(@NotNull ModelData data) {
+        Integer waterLevel = data.get(AqueductBlockEntity.WATER_LEVEL);
+        return waterLevel != null ? waterLevel : 0;
+    }
+
+    @NotNull
+    private static BakedQuad createQuad(@NotNull TextureAtlasSprite sprite, float height, boolean backward) {
+        int[] vertices = new int[4 * VERTEX_SIZE];
+        float[][] corners = {{0, 0}, {0, 1}, {1, 1}, {1, 0}};
+
+        for (int i = 0; i < 4; i++) {
+            float[] corner = corners[backward ? 3 - i : i];
+            int offset = i * VERTEX_SIZE;
+
+            vertices[offset] = Float.floatToRawIntBits(corner[0]);
+            vertices[offset + 1] = Float.floatToRawIntBits(height);
+            vertices[offset + 2] = Float.floatToRawIntBits(corner[1]);
+            vertices[offset + 3] = WHITE;
+            vertices[offset + 4] = Float.floatToRawIntBits(corner[0] == 0 ? sprite.getU0() : sprite.getU1());
+            vertices[offset + 5] = Float.floatToRawIntBits(corner[1] == 0 ? sprite.getV0() : sprite.getV1());
+            vertices[offset + 6] = 0; // light is computed by chunk renderer
+            vertices[offset + 7] = backward ? NORMAL_DOWN : NORMAL_UP;
+        }
+
+        // tint 0 is water color of biome, see block colors
+        return new BakedQuad(vertices, 0, backward ? Direction.DOWN : Direction.UP, sprite, true);
+    }
+}
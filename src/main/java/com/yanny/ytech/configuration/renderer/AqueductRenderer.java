@@ -1,15 +1,13 @@
 package com.yanny.ytech.configuration.renderer;
 
 import com.mojang.blaze3d.vertex.PoseStack;
-import com.mojang.blaze3d.vertex.VertexConsumer;
 import com.yanny.ytech.YTechMod;
 import com.yanny.ytech.configuration.block_entity.IrrigationBlockEntity;
 import com.yanny.ytech.network.irrigation.IrrigationClientNetwork;
-import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.MultiBufferSource;
 import net.minecraft.client.renderer.blockentity.BlockEntityRenderer;
 import net.minecraft.client.renderer.blockentity.BlockEntityRendererProvider;
-import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.LiquidBlock;
 import net.minecraft.world.level.block.entity.BlockEntity;
@@ -17,12 +15,16 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.AABB;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.api.distmarker.OnlyIn;
+import net.neoforged.neoforge.client.extensions.common.IClientFluidTypeExtensions;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 @OnlyIn(Dist.CLIENT)
 public class AqueductRenderer implements BlockEntityRenderer<BlockEntity> {
-    private static final FakeAqueductLevel level = new FakeAqueductLevel();
     private final BlockState water;
+    // renderer is recreated on resource reload, so mesh never outlives texture atlas
+    @Nullable private BakedWaterMesh mesh = null;
+    @Nullable private Level meshLevel = null;
 
     public AqueductRenderer(BlockEntityRendererProvider.Context context) {
         water = Blocks.WATER.defaultBlockState().setValue(LiquidBlock.LEVEL, 8);
@@ -36,22 +38,34 @@ public class AqueductRenderer implements BlockEntityRenderer<BlockEntity> {
 
     @Override
     public void render(@NotNull BlockEntity blockEntity, float partialTick, @NotNull PoseStack poseStack, @NotNull MultiBufferSource buffer, int packedLight, int packedOverlay) {
-        if (blockEntity instanceof IrrigationBlockEntity irrigationBlockEntity) {
-            IrrigationClientNetwork network = YTechMod.IRRIGATION_PROPAGATOR.client().getNetwork(irrigationBlockEntity);
+        // water is meshed with terrain, see AqueductWaterBakedModel
+        if (YTechMod.CONFIGURATION.isChunkWaterRendering()) {
+            return;
+        }
+
+        if (blockEntity instanceof IrrigationBlockEntity irrigationBlockEntity && blockEntity.getLevel() != null) {
+            IrrigationClientNetwork network = irrigationBlockEntity.getClientNetwork();
 
             if (network != null && network.getCapacity() > 0 && network.getAmount() > 0) {
-                level.setData(blockEntity, water);
+                Level level = blockEntity.getLevel();
+                int tint = IClientFluidTypeExtensions.of(water.getFluidState()).getTintColor(water.getFluidState(), level, blockEntity.getBlockPos());
 
                 poseStack.pushPose();
                 poseStack.translate(0, -12.0/16.0 + (network.getAmount() / (float)network.getCapacity()) * (12.0/16.0), 0);
-                PoseStack.Pose pose = poseStack.last();
-
-                VertexConsumer builder = new FluidVertexConsumer(buffer, water.getFluidState(), pose);
-                Minecraft.getInstance().getBlockRenderer().renderLiquid(BlockPos.ZERO, level, builder, water, water.getFluidState());
-
+                getMesh(level).render(new FluidVertexConsumer(buffer, water.getFluidState(), poseStack.last()), tint, packedLight);
                 poseStack.popPose();
-                level.clearData();
             }
         }
     }
+
+    // shade of faces depends on dimension
+    @NotNull
+    private BakedWaterMesh getMesh(@NotNull Level level) {
+        if (mesh == null || meshLevel != level) {
+            mesh = BakedWaterMesh.bake(level, water);
+            meshLevel = level;
+        }
+
+        return mesh;
+    }
 }
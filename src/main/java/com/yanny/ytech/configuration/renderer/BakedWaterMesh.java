@@ -0,0 +1,103 @@
+package com.yanny.ytech.configuration.renderer;
+
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.client.Minecraft;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import org.jetbrains.annotations.NotNull;
+
+// liquid quads rendered once without tint and light, only shade of faces is baked in
+@OnlyIn(Dist.CLIENT)
+public final class BakedWaterMesh {
+    private static final int POSITION = 3;
+    private static final int UV = 2;
+
+    @NotNull private final FloatArrayList positions = new FloatArrayList();
+    @NotNull private final FloatArrayList uvs = new FloatArrayList();
+    @NotNull private final FloatArrayList normals = new FloatArrayList();
+    @NotNull private final IntArrayList colors = new IntArrayList();
+
+    private BakedWaterMesh() {}
+
+    @NotNull
+    public static BakedWaterMesh bake(@NotNull Level level, @NotNull BlockState fluid) {
+        BakedWaterMesh mesh = new BakedWaterMesh();
+        FakeAqueductLevel fakeLevel = new FakeAqueductLevel();
+
+        fakeLevel.setBakeData(level, fluid);
+        Minecraft.getInstance().getBlockRenderer().renderLiquid(BlockPos.ZERO, fakeLevel, mesh.new Recorder(), fluid, fluid.getFluidState());
+        fakeLevel.clearData();
+        return mesh;
+    }
+
+    // tint is ARGB color of fluid at rendered position
+    public void render(@NotNull VertexConsumer consumer, int tint, int packedLight) {
+        float alpha = (tint >> 24 & 255) / 255.0F;
+        float red = (tint >> 16 & 255) / 255.0F;
+        float green = (tint >> 8 & 255) / 255.0F;
+        float blue = (tint & 255) / 255.0F;
+
+        for (int i = 0; i < colors.size(); i++) {
+            int color = colors.getInt(i);
+
+            consumer.addVertex(positions.getFloat(i * POSITION), positions.getFloat(i * POSITION + 1), positions.getFloat(i * POSITION + 2))
+                    .setColor((color >> 16 & 255) / 255.0F * red, (color >> 8 & 255) / 255.0F * green, (color & 255) / 255.0F * blue, (color >> 24 & 255) / 255.0F * alpha)
+                    .setUv(uvs.getFloat(i * UV), uvs.getFloat(i * UV + 1))
+                    .setLight(packedLight)
+                    .setNormal(normals.getFloat(i * POSITION), normals.getFloat(i * POSITION + 1), normals.getFloat(i * POSITION + 2));
+        }
+    }
+
+    private final class Recorder implements VertexConsumer {
+        @NotNull
+        @Override
+        public VertexConsumer addVertex(float x, float y, float z) {
+            positions.add(x);
+            positions.add(y);
+            positions.add(z);
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public VertexConsumer setColor(int red, int green, int blue, int alpha) {
+            colors.add(alpha << 24 | red << 16 | green << 8 | blue);
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public VertexConsumer setUv(float u, float v) {
+            uvs.add(u);
+            uvs.add(v);
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public VertexConsumer setUv1(int u, int v) {
+            return this;
+        }
+
+        // light is applied at render time
+        @NotNull
+        @Override
+        public VertexConsumer setUv2(int u, int v) {
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public VertexConsumer setNormal(float x, float y, float z) {
+            normals.add(x);
+            normals.add(y);
+            normals.add(z);
+            return this;
+        }
+    }
+}
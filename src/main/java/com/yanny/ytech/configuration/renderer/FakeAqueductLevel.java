@@ -19,6 +19,7 @@ public final class FakeAqueductLevel implements BlockAndTintGetter {
     private Level level;
     private BlockPos originalPos;
     private BlockState fluid;
+    private boolean neutralTint = false;
 
     @Override
     public float getShade(@NotNull Direction pDirection, boolean pShade) {
@@ -37,7 +38,7 @@ public final class FakeAqueductLevel implements BlockAndTintGetter {
 
     @Override
     public int getBlockTint(@NotNull BlockPos pPos, @NotNull ColorResolver pColorResolver) {
-        return level.getBlockTint(originalPos, pColorResolver);
+        return neutralTint ? 0xFFFFFF : level.getBlockTint(originalPos, pColorResolver);
     }
 
     @Nullable
@@ -82,9 +83,18 @@ public final class FakeAqueductLevel implements BlockAndTintGetter {
         this.fluid = fluid;
     }
 
+    // tint and light are applied when baked mesh is rendered
+    public void setBakeData(@NotNull Level level, @NotNull BlockState fluid) {
+        originalPos = BlockPos.ZERO;
+        this.level = level;
+        this.fluid = fluid;
+        neutralTint = true;
+    }
+
     public void clearData() {
         originalPos = null;
         level = null;
         fluid = null;
+        neutralTint = false;
     }
 }
@@ -0,0 +1,118 @@
+package com.yanny.ytech.network.generic;
+
+import com.yanny.ytech.YTechMod;
+import com.yanny.ytech.network.generic.client.ClientPropagator;
+import com.yanny.ytech.network.generic.server.IServerLevelListener;
+import com.yanny.ytech.network.generic.server.NetworkChunkIndex;
+import com.yanny.ytech.network.generic.server.NetworkSyncBatch;
+import com.yanny.ytech.network.generic.server.ServerPropagator;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.LevelChunk;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// dispatches level, chunk and player events to all registered network types and their level services,
+// network types share one chunk index per level and one batched sync packet per player and tick
+public class NetworkRegistry {
+    @NotNull private final List<ServerPropagator<?, ?>> serverPropagators = new ArrayList<>();
+    @NotNull private final List<ClientPropagator<?, ?>> clientPropagators = new ArrayList<>();
+    @NotNull private final List<IServerLevelListener> levelListeners = new ArrayList<>();
+    @NotNull private final Map<ResourceLocation, NetworkChunkIndex> chunkIndexes = new HashMap<>();
+    @NotNull private final NetworkSyncBatch syncBatch = new NetworkSyncBatch();
+
+    // type id is index of server propagator
+    @NotNull
+    public <C extends ClientPropagator<?, ?>, S extends ServerPropagator<?, ?>> YTechMod.DistHolder<C, S> register(@NotNull YTechMod.DistHolder<C, S> propagator) {
+        propagator.server().bind(serverPropagators.size());
+        serverPropagators.add(propagator.server());
+
+        if (propagator.client() != null) {
+            clientPropagators.add(propagator.client());
+        }
+
+        return propagator;
+    }
+
+    // listeners are notified in registration order
+    @NotNull
+    public <T extends IServerLevelListener> T register(@NotNull T listener) {
+        levelListeners.add(listener);
+        return listener;
+    }
+
+    @NotNull
+    public NetworkChunkIndex getChunkIndex(@NotNull ResourceLocation levelId) {
+        return chunkIndexes.computeIfAbsent(levelId, (k) -> new NetworkChunkIndex());
+    }
+
+    public void queue(@NotNull ServerPlayer player, @NotNull CustomPacketPayload payload) {
+        syncBatch.queue(player, payload);
+    }
+
+    public void flush() {
+        syncBatch.flush();
+    }
+
+    public void onLevelLoad(@NotNull ServerLevel level) {
+        serverPropagators.forEach((propagator) -> propagator.onLevelLoad(level));
+    }
+
+    public void onLevelLoad(@NotNull ClientLevel level) {
+        clientPropagators.forEach((propagator) -> propagator.onLevelLoad(level));
+    }
+
+    public void onLevelUnload(@NotNull ServerLevel level) {
+        serverPropagators.forEach((propagator) -> propagator.onLevelUnload(level));
+        levelListeners.forEach((listener) -> listener.onLevelUnload(level));
+        chunkIndexes.remove(NetworkUtils.getLevelId(level));
+        syncBatch.clear();
+    }
+
+    public void onLevelUnload(@NotNull ClientLevel level) {
+        clientPropagators.forEach((propagator) -> propagator.onLevelUnload(level));
+    }
+
+    public void onPlayerLogIn(@NotNull Player player) {
+        serverPropagators.forEach((propagator) -> propagator.onPlayerLogIn(player));
+    }
+
+    public void preTick(@NotNull ServerLevel level) {
+        serverPropagators.forEach((propagator) -> propagator.applyPendingSplits(level));
+        levelListeners.forEach((listener) -> listener.tick(level));
+    }
+
+    public void tick(@NotNull ServerLevel level) {
+        serverPropagators.forEach((propagator) -> propagator.tick(level));
+    }
+
+    public void onChunkLoad(@NotNull ServerLevel level, @NotNull ChunkPos chunkPos) {
+        levelListeners.forEach((listener) -> listener.onChunkLoad(level, chunkPos));
+    }
+
+    // only types with network in chunk are notified
+    public void onChunkWatch(@NotNull ServerLevel level, @NotNull ServerPlayer player, @NotNull LevelChunk chunk) {
+        NetworkChunkIndex chunkIndex = chunkIndexes.get(NetworkUtils.getLevelId(level));
+
+        if (chunkIndex != null) {
+            chunkIndex.getTypes(chunk.getPos()).forEach((int typeId) -> serverPropagators.get(typeId).onChunkWatch(level, player, chunk));
+        }
+    }
+
+    public void onChunkUnWatch(@NotNull ServerLevel level, @NotNull ServerPlayer player, @NotNull ChunkPos chunkPos) {
+        NetworkChunkIndex chunkIndex = chunkIndexes.get(NetworkUtils.getLevelId(level));
+
+        if (chunkIndex != null) {
+            chunkIndex.getTypes(chunkPos).forEach((int typeId) -> serverPropagators.get(typeId).onChunkUnWatch(level, player, chunkPos));
+        }
+    }
+}
@@ -1,32 +1,51 @@
 package com.yanny.ytech.network.generic.client;
 
 import com.yanny.ytech.network.generic.common.INetworkBlockEntity;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+// accessed only from client thread, messages are enqueued to main thread
 public class ClientLevelData<N extends ClientNetwork, O extends INetworkBlockEntity> {
-    @NotNull private final ConcurrentHashMap<Integer, N> networkMap;
+    @NotNull private final Int2ObjectOpenHashMap<N> networkMap;
 
     public ClientLevelData(@NotNull Map<Integer, N> networkMap) {
-        this.networkMap = new ConcurrentHashMap<>(networkMap);
+        this.networkMap = new Int2ObjectOpenHashMap<>(networkMap);
     }
 
     public ClientLevelData() {
-        networkMap = new ConcurrentHashMap<>();
+        networkMap = new Int2ObjectOpenHashMap<>();
     }
 
-    @NotNull
+    @Nullable
     public N getNetwork(@NotNull O blockEntity) {
         return networkMap.get(blockEntity.getNetworkId());
     }
 
+    @Nullable
+    public N getNetwork(int networkId) {
+        return networkMap.get(networkId);
+    }
+
     public void onNetworkAddedOrUpdated(@NotNull N network) {
-        networkMap.put(network.getNetworkId(), network);
+        N previous = networkMap.put(network.getNetworkId(), network);
+
+        if (previous != null && previous != network) {
+            previous.markStale();
+        }
     }
 
     public void onNetworkRemoved(int networkId) {
-        networkMap.remove(networkId);
+        N previous = networkMap.remove(networkId);
+
+        if (previous != null) {
+            previous.markStale();
+        }
+    }
+
+    public void onRemoved() {
+        networkMap.values().forEach(ClientNetwork::markStale);
     }
 }
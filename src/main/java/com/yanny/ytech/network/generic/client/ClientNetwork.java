@@ -3,7 +3,18 @@ package com.yanny.ytech.network.generic.client;
 import com.yanny.ytech.network.generic.common.CommonNetwork;
 
 public abstract class ClientNetwork extends CommonNetwork {
+    // set when network was replaced by newer state or removed, cached references must be fetched again
+    private boolean stale = false;
+
     public ClientNetwork(int networkId) {
         super(networkId);
     }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    void markStale() {
+        stale = true;
+    }
 }
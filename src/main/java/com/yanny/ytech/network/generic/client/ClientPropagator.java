@@ -3,96 +3,140 @@ package com.yanny.ytech.network.generic.client;
 import com.mojang.logging.LogUtils;
 import com.yanny.ytech.network.generic.NetworkUtils;
 import com.yanny.ytech.network.generic.common.INetworkBlockEntity;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.ClientLevel;
-import net.minecraft.resources.ResourceLocation;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Map;
 
 public abstract class ClientPropagator<N extends ClientNetwork, B extends INetworkBlockEntity> {
     protected static final Logger LOGGER = LogUtils.getLogger();
 
-    @NotNull private final HashMap<ResourceLocation, ClientLevelData<N, B>> levelMap = new HashMap<>();
     @NotNull private final String networkName;
+    // listeners are woken only by updates of network they listen to
+    @NotNull private final Int2ObjectOpenHashMap<ReferenceOpenHashSet<IClientNetworkListener>> listeners = new Int2ObjectOpenHashMap<>();
+
+    // client have only one instance of level
+    @Nullable private ClientLevelData<N, B> levelData = null;
+    @Nullable private ClientLevel level = null;
 
     public ClientPropagator(@NotNull String networkName) {
         this.networkName = networkName;
     }
 
     public void onLevelLoad(@NotNull ClientLevel level) {
-        ResourceLocation id = NetworkUtils.getLevelId(level);
-
-        LOGGER.debug("[{}] Preparing propagators for {}", networkName, id);
-        levelMap.put(id, new ClientLevelData<>());
-        LOGGER.debug("[{}] Prepared propagators for {}", networkName, id);
+        LOGGER.debug("[{}] Preparing propagators for {}", networkName, NetworkUtils.getLevelId(level));
+        setLevelData(level, new ClientLevelData<>());
+        LOGGER.debug("[{}] Prepared propagators for {}", networkName, NetworkUtils.getLevelId(level));
     }
 
     public void onLevelUnload(@NotNull ClientLevel level) {
-        ResourceLocation id = NetworkUtils.getLevelId(level);
+        LOGGER.debug("[{}] Removing propagator for {}", networkName, NetworkUtils.getLevelId(level));
+
+        if (this.level == level) {
+            setLevelData(null, null);
+        }
 
-        LOGGER.debug("[{}] Removing propagator for {}", networkName, id);
-        levelMap.remove(id);
-        LOGGER.debug("[{}] Removed propagator for {}", networkName, id);
+        LOGGER.debug("[{}] Removed propagator for {}", networkName, NetworkUtils.getLevelId(level));
     }
 
     public void syncLevel(@NotNull Map<Integer, N> networkMap) {
         if (Minecraft.getInstance().level != null) {
-            levelMap.clear(); // client have only one instance of level
-            levelMap.put(NetworkUtils.getLevelId(Minecraft.getInstance().level), new ClientLevelData<>(networkMap));
+            setLevelData(Minecraft.getInstance().level, new ClientLevelData<>(networkMap));
             LOGGER.debug("[{}] Synced ClientLevel ({} networks)", networkName, networkMap.size());
         } else {
             LOGGER.warn("[{}] Invalid ClientLevel reference!", networkName);
         }
     }
 
-    public void addOrUpdateNetwork(@NotNull N network) {
-        if (Minecraft.getInstance().level != null) {
-            ClientLevelData<N, B> level = levelMap.get(NetworkUtils.getLevelId(Minecraft.getInstance().level));
-
-            if (level != null) {
-                level.onNetworkAddedOrUpdated(network);
-                LOGGER.debug("[{}] Added or updated network {} ({})", networkName, network.getNetworkId(), network);
-            } else {
-                LOGGER.warn("[{}] No level stored for {}", networkName, Minecraft.getInstance().level);
-            }
-        } else {
-            LOGGER.warn("[{}] Invalid ClientLevel reference!", networkName);
+    public void addOrUpdateNetworks(@NotNull Collection<N> networks) {
+        ClientLevelData<N, B> levelData = getLevelData();
+
+        if (levelData != null) {
+            networks.forEach((network) -> {
+                levelData.onNetworkAddedOrUpdated(network);
+                notifyListeners(network.getNetworkId());
+            });
+            LOGGER.debug("[{}] Added or updated {} networks", networkName, networks.size());
         }
     }
 
     public void deletedNetwork(int networkId) {
-        if (Minecraft.getInstance().level != null) {
-            ClientLevelData<N, B> level = levelMap.get(NetworkUtils.getLevelId(Minecraft.getInstance().level));
-
-            if (level != null) {
-                level.onNetworkRemoved(networkId);
-                LOGGER.debug("[{}] Removed network {}", networkName, networkId);
-            } else {
-                LOGGER.warn("[{}] No level stored for {}", networkName, Minecraft.getInstance().level);
-            }
-        } else {
-            LOGGER.warn("[{}] Invalid ClientLevel reference!", networkName);
+        ClientLevelData<N, B> levelData = getLevelData();
+
+        if (levelData != null) {
+            levelData.onNetworkRemoved(networkId);
+            notifyListeners(networkId);
+            LOGGER.debug("[{}] Removed network {}", networkName, networkId);
+        }
+    }
+
+    public void addListener(int networkId, @NotNull IClientNetworkListener listener) {
+        listeners.computeIfAbsent(networkId, (k) -> new ReferenceOpenHashSet<>()).add(listener);
+    }
+
+    public void removeListener(int networkId, @NotNull IClientNetworkListener listener) {
+        ReferenceOpenHashSet<IClientNetworkListener> networkListeners = listeners.get(networkId);
+
+        if (networkListeners != null && networkListeners.remove(listener) && networkListeners.isEmpty()) {
+            listeners.remove(networkId);
         }
     }
 
     @Nullable
     public N getNetwork(@NotNull B blockEntity) {
-        if (blockEntity.getLevel() instanceof ClientLevel level) {
-            ClientLevelData<N, B> levelData = levelMap.get(NetworkUtils.getLevelId(level));
-
-            if (levelData != null) {
-                return levelData.getNetwork(blockEntity);
-            } else {
-                LOGGER.warn("[{}] No network for level {}", networkName, level);
-                return null;
-            }
+        if (levelData != null && blockEntity.getLevel() == level) {
+            return levelData.getNetwork(blockEntity);
         } else {
-            LOGGER.warn("[{}] Invalid ClientLevel reference: {}", networkName, blockEntity.getLevel());
+            LOGGER.warn("[{}] No network for level {}", networkName, blockEntity.getLevel());
             return null;
         }
     }
+
+    @Nullable
+    protected N getNetwork(int networkId) {
+        if (levelData != null && level == Minecraft.getInstance().level) {
+            return levelData.getNetwork(networkId);
+        }
+
+        return null;
+    }
+
+    @Nullable
+    private ClientLevelData<N, B> getLevelData() {
+        if (Minecraft.getInstance().level == null) {
+            LOGGER.warn("[{}] Invalid ClientLevel reference!", networkName);
+            return null;
+        }
+
+        if (levelData == null || level != Minecraft.getInstance().level) {
+            LOGGER.warn("[{}] No level stored for {}", networkName, Minecraft.getInstance().level);
+            return null;
+        }
+
+        return levelData;
+    }
+
+    private void setLevelData(@Nullable ClientLevel level, @Nullable ClientLevelData<N, B> levelData) {
+        if (this.levelData != null) {
+            this.levelData.onRemoved();
+        }
+
+        this.level = level;
+        this.levelData = levelData;
+        listeners.values().forEach((networkListeners) -> networkListeners.forEach(IClientNetworkListener::onClientNetworkChanged));
+    }
+
+    private void notifyListeners(int networkId) {
+        ReferenceOpenHashSet<IClientNetworkListener> networkListeners = listeners.get(networkId);
+
+        if (networkListeners != null) {
+            networkListeners.forEach(IClientNetworkListener::onClientNetworkChanged);
+        }
+    }
 }
@@ -0,0 +1,5 @@
+package com.yanny.ytech.network.generic.client;
+
+public interface IClientNetworkListener {
+    void onClientNetworkChanged();
+}
@@ -16,10 +16,10 @@ public abstract class LevelSyncMessage<T> {
     }
 
     public LevelSyncMessage(@NotNull RegistryFriendlyByteBuf buf, Function<FriendlyByteBuf, T> valueReader) {
-        networkMap = buf.readMap(FriendlyByteBuf::readInt, valueReader::apply);
+        networkMap = buf.readMap(FriendlyByteBuf::readVarInt, valueReader::apply);
     }
 
     protected void write(@NotNull RegistryFriendlyByteBuf buf, BiConsumer<FriendlyByteBuf, T> valueWriter) {
-        buf.writeMap(networkMap, FriendlyByteBuf::writeInt, valueWriter::accept);
+        buf.writeMap(networkMap, FriendlyByteBuf::writeVarInt, valueWriter::accept);
     }
 }
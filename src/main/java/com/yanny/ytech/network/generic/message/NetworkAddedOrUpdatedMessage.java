@@ -4,21 +4,22 @@ import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.RegistryFriendlyByteBuf;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 public abstract class NetworkAddedOrUpdatedMessage<T> {
-    public final T payload;
+    @NotNull public final List<T> payloads;
 
-    public NetworkAddedOrUpdatedMessage(T payload) {
-        this.payload = payload;
+    public NetworkAddedOrUpdatedMessage(@NotNull List<T> payloads) {
+        this.payloads = payloads;
     }
 
     public NetworkAddedOrUpdatedMessage(@NotNull RegistryFriendlyByteBuf buf, Function<FriendlyByteBuf, T> valueReader) {
-        this.payload = valueReader.apply(buf);
+        this.payloads = buf.readList(valueReader::apply);
     }
 
     protected void write(@NotNull RegistryFriendlyByteBuf buf, BiConsumer<FriendlyByteBuf, T> valueWriter) {
-        valueWriter.accept(buf, payload);
+        buf.writeCollection(payloads, valueWriter::accept);
     }
 }
@@ -11,10 +11,10 @@ public abstract class NetworkRemovedMessage {
     }
 
     public NetworkRemovedMessage(@NotNull RegistryFriendlyByteBuf buf) {
-        this.networkId = buf.readInt();
+        this.networkId = buf.readVarInt();
     }
 
     protected void write(@NotNull RegistryFriendlyByteBuf buf) {
-        buf.writeInt(networkId);
+        buf.writeVarInt(networkId);
     }
 }
@@ -0,0 +1,173 @@
+package com.yanny.ytech.network.generic.metrics;
+
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.Mth;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// hot path counters of network subsystem, collected only while profiling is running, used only from server thread
+public class NetworkMetrics {
+    private static final int WINDOW = 1024;
+    private static final int TOP_NETWORKS = 5;
+    // clock is read only while profiling or recording JFR events
+    private static final long NOT_MEASURED = Long.MIN_VALUE;
+
+    @NotNull private final Map<String, Samples> samples = new TreeMap<>();
+    @NotNull private final Map<String, long[]> players = new HashMap<>();
+    @NotNull private final Object2LongOpenHashMap<String> networkTimes = new Object2LongOpenHashMap<>();
+    @NotNull private final Map<String, long[]> counters = new TreeMap<>();
+    private boolean enabled = false;
+    private long startTime = 0;
+
+    public void start() {
+        reset();
+        enabled = true;
+    }
+
+    public void stop() {
+        enabled = false;
+    }
+
+    public void reset() {
+        samples.clear();
+        players.clear();
+        networkTimes.clear();
+        counters.clear();
+        startTime = System.nanoTime();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long begin() {
+        return enabled || NetworkOperationEvent.isRecording() ? System.nanoTime() : NOT_MEASURED;
+    }
+
+    public void end(@NotNull String networkName, @NotNull String operation, long begin, int size) {
+        if (begin == NOT_MEASURED) {
+            return;
+        }
+
+        long time = System.nanoTime() - begin;
+
+        if (enabled) {
+            samples.computeIfAbsent(networkName + "." + operation, (k) -> new Samples(true)).add(time);
+        }
+
+        NetworkOperationEvent.emit(networkName, operation, -1, size, time);
+    }
+
+    public void recordSize(@NotNull String networkName, @NotNull String name, int size) {
+        if (enabled) {
+            samples.computeIfAbsent(networkName + "." + name, (k) -> new Samples(false)).add(size);
+        }
+    }
+
+    public void increment(@NotNull String networkName, @NotNull String name) {
+        if (enabled) {
+            counters.computeIfAbsent(networkName + "." + name, (k) -> new long[1])[0]++;
+        }
+    }
+
+    public void recordNetworkTick(@NotNull String networkName, @NotNull ResourceLocation levelId, int networkId, long begin) {
+        if (begin == NOT_MEASURED) {
+            return;
+        }
+
+        long time = System.nanoTime() - begin;
+
+        if (enabled) {
+            samples.computeIfAbsent(networkName + ".networkTick", (k) -> new Samples(true)).add(time);
+            networkTimes.addTo(networkName + " " + levelId + " #" + networkId, time);
+        }
+
+        NetworkOperationEvent.emit(networkName, "networkTick", networkId, 0, time);
+    }
+
+    public void recordPacket(@NotNull ServerPlayer player, int bytes) {
+        if (enabled) {
+            long[] counters = players.computeIfAbsent(player.getGameProfile().getName(), (k) -> new long[2]);
+
+            counters[0]++;
+            counters[1] += bytes;
+        }
+    }
+
+    @NotNull
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        double seconds = Math.max(1, (System.nanoTime() - startTime) / 1_000_000_000.0);
+
+        lines.add(String.format("Network profile (%s, %.0fs), last %d samples:", enabled ? "running" : "stopped", seconds, WINDOW));
+        samples.forEach((name, value) -> lines.add(value.format(name)));
+
+        if (!counters.isEmpty()) {
+            lines.add("Counters:");
+            counters.forEach((name, counter) -> lines.add(String.format("  %s: %d (%.1f/s)", name, counter[0], counter[0] / seconds)));
+        }
+
+        if (!players.isEmpty()) {
+            lines.add("Sent to players:");
+            players.forEach((name, counters) -> lines.add(String.format("  %s: %d packets (%.1f/s), %d bytes (%.1f B/s)",
+                    name, counters[0], counters[0] / seconds, counters[1], counters[1] / seconds)));
+        }
+
+        if (!networkTimes.isEmpty()) {
+            lines.add("Most expensive networks:");
+            networkTimes.object2LongEntrySet().stream()
+                    .sorted(Comparator.comparingLong(Object2LongMap.Entry<String>::getLongValue).reversed())
+                    .limit(TOP_NETWORKS)
+                    .forEach((entry) -> lines.add(String.format("  %s: %.3f ms total", entry.getKey(), entry.getLongValue() / 1_000_000.0)));
+        }
+
+        return lines;
+    }
+
+    private static class Samples {
+        private final long[] values = new long[WINDOW];
+        private final boolean time;
+        private long count = 0;
+        private long total = 0;
+
+        private Samples(boolean time) {
+            this.time = time;
+        }
+
+        private void add(long value) {
+            values[(int) (count % WINDOW)] = value;
+            count++;
+            total += value;
+        }
+
+        @NotNull
+        private String format(@NotNull String name) {
+            long[] sorted = Arrays.copyOf(values, (int) Math.min(count, WINDOW));
+
+            Arrays.sort(sorted);
+
+            if (time) {
+                return String.format("  %s: n=%d, p50=%.1fus, p95=%.1fus, p99=%.1fus, max=%.1fus, total=%.3fms", name, count,
+                        percentile(sorted, 0.5) / 1000.0, percentile(sorted, 0.95) / 1000.0, percentile(sorted, 0.99) / 1000.0,
+                        percentile(sorted, 1) / 1000.0, total / 1_000_000.0);
+            } else {
+                return String.format("  %s: n=%d, p50=%d, p95=%d, p99=%d, max=%d", name, count,
+                        percentile(sorted, 0.5), percentile(sorted, 0.95), percentile(sorted, 0.99), percentile(sorted, 1));
+            }
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            return sorted.length > 0 ? sorted[Mth.clamp((int) Math.ceil(percentile * sorted.length) - 1, 0, sorted.length - 1)] : 0;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.yanny.ytech.network.generic.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.jetbrains.annotations.NotNull;
+
+// disabled by default, enable "ytech.NetworkOperation" in JFR recording settings
+@Name("ytech.NetworkOperation")
+@Label("Network Operation")
+@Description("Single operation of YTech block network subsystem")
+@Category({"YTech", "Network"})
+@Enabled(false)
+@StackTrace(false)
+class NetworkOperationEvent extends Event {
+    @Label("Network") String network;
+    @Label("Operation") String operation;
+    @Label("Network Id") int networkId;
+    @Label("Size") int size;
+    @Label("Time") @Timespan(Timespan.NANOSECONDS) long time;
+
+    // allocation is removed by JIT, enabled state is constant while recording settings doesn't change
+    static boolean isRecording() {
+        return new NetworkOperationEvent().isEnabled();
+    }
+
+    static void emit(@NotNull String network, @NotNull String operation, int networkId, int size, long time) {
+        NetworkOperationEvent event = new NetworkOperationEvent();
+
+        if (event.shouldCommit()) {
+            event.network = network;
+            event.operation = operation;
+            event.networkId = networkId;
+            event.size = size;
+            event.time = time;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.yanny.ytech.network.generic.metrics;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.yanny.ytech.YTechMod;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import org.jetbrains.annotations.NotNull;
+
+// /ytech profile [start|stop|reset]
+public class NetworkProfileCommand {
+    private static final int PERMISSION_LEVEL = 2;
+
+    public static void register(@NotNull CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal(YTechMod.MOD_ID)
+                .requires((source) -> source.hasPermission(PERMISSION_LEVEL))
+                .then(Commands.literal("profile")
+                        .executes((context) -> {
+                            if (!YTechMod.NETWORK_METRICS.isEnabled()) {
+                                context.getSource().sendSuccess(() -> Component.literal("Network profiling is not running, use /" + YTechMod.MOD_ID + " profile start"), false);
+                            }
+
+                            return report(context.getSource());
+                        })
+                        .then(Commands.literal("start").executes((context) -> {
+                            YTechMod.NETWORK_METRICS.start();
+                            context.getSource().sendSuccess(() -> Component.literal("Network profiling started"), true);
+                            return 1;
+                        }))
+                        .then(Commands.literal("stop").executes((context) -> {
+                            YTechMod.NETWORK_METRICS.stop();
+                            return report(context.getSource());
+                        }))
+                        .then(Commands.literal("reset").executes((context) -> {
+                            YTechMod.NETWORK_METRICS.reset();
+                            context.getSource().sendSuccess(() -> Component.literal("Network profile cleared"), false);
+                            return 1;
+                        }))));
+    }
+
+    private static int report(@NotNull CommandSourceStack source) {
+        YTechMod.NETWORK_METRICS.report().forEach((line) -> source.sendSuccess(() -> Component.literal(line), false));
+        return 1;
+    }
+}
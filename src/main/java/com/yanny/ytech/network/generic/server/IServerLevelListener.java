@@ -0,0 +1,15 @@
+package com.yanny.ytech.network.generic.server;
+
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import org.jetbrains.annotations.NotNull;
+
+// per level services of network types, receives level lifecycle thru network registry
+public interface IServerLevelListener {
+    default void onLevelUnload(@NotNull ServerLevel level) {}
+
+    // called at start of level tick, after pending network splits are applied
+    default void tick(@NotNull ServerLevel level) {}
+
+    default void onChunkLoad(@NotNull ServerLevel level, @NotNull ChunkPos chunkPos) {}
+}
@@ -0,0 +1,49 @@
+package com.yanny.ytech.network.generic.server;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.ints.IntSets;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.world.level.ChunkPos;
+import org.jetbrains.annotations.NotNull;
+
+// chunk to network ids of all registered network types in single level, keyed by type id assigned by registry
+public class NetworkChunkIndex {
+    @NotNull private final Long2ObjectMap<Int2ObjectMap<IntSet>> chunkMap = new Long2ObjectOpenHashMap<>();
+
+    @NotNull
+    public IntSet getTypes(@NotNull ChunkPos chunkPos) {
+        Int2ObjectMap<IntSet> types = chunkMap.get(chunkPos.toLong());
+        return types != null ? IntSets.unmodifiable(types.keySet()) : IntSets.EMPTY_SET;
+    }
+
+    @NotNull
+    IntSet getNetworkIds(long chunkPos, int typeId) {
+        Int2ObjectMap<IntSet> types = chunkMap.get(chunkPos);
+        IntSet networkIds = types != null ? types.get(typeId) : null;
+        return networkIds != null ? IntSets.unmodifiable(networkIds) : IntSets.EMPTY_SET;
+    }
+
+    void add(long chunkPos, int typeId, int networkId) {
+        chunkMap.computeIfAbsent(chunkPos, (k) -> new Int2ObjectOpenHashMap<>()).computeIfAbsent(typeId, (k) -> new IntOpenHashSet()).add(networkId);
+    }
+
+    void remove(long chunkPos, int typeId, int networkId) {
+        Int2ObjectMap<IntSet> types = chunkMap.get(chunkPos);
+
+        if (types != null) {
+            IntSet networkIds = types.get(typeId);
+
+            if (networkIds != null && networkIds.remove(networkId) && networkIds.isEmpty()) {
+                types.remove(typeId);
+
+                if (types.isEmpty()) {
+                    chunkMap.remove(chunkPos);
+                }
+            }
+        }
+    }
+}
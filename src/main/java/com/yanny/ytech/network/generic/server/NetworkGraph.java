@@ -0,0 +1,296 @@
+package com.yanny.ytech.network.generic.server;
+
+import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongLists;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+// positional graph of network members, edges exist only where both blocks declare each other as valid neighbor
+public class NetworkGraph {
+    public static final byte HORIZONTAL_CONNECTIONS = (byte) (mask(Direction.NORTH) | mask(Direction.SOUTH) | mask(Direction.WEST) | mask(Direction.EAST));
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    @NotNull private Long2ByteOpenHashMap nodes;
+    // snapshots still reading current nodes, nodes are copied before modification while any is in use
+    @NotNull private AtomicInteger readers = new AtomicInteger();
+
+    public NetworkGraph() {
+        nodes = new Long2ByteOpenHashMap();
+    }
+
+    private NetworkGraph(@NotNull Long2ByteOpenHashMap nodes) {
+        this.nodes = nodes;
+    }
+
+    public void add(@NotNull BlockPos pos, @NotNull List<BlockPos> validNeighbors) {
+        beforeModification();
+        nodes.put(pos.asLong(), getConnections(pos, validNeighbors));
+    }
+
+    public void add(long pos, byte connections) {
+        beforeModification();
+        nodes.put(pos, connections);
+    }
+
+    public void addAll(@NotNull NetworkGraph graph) {
+        beforeModification();
+        nodes.putAll(graph.nodes);
+    }
+
+    public void remove(long pos) {
+        beforeModification();
+        nodes.remove(pos);
+    }
+
+    public void clear() {
+        if (readers.get() > 0) {
+            nodes = new Long2ByteOpenHashMap();
+            readers = new AtomicInteger();
+        } else {
+            nodes.clear();
+        }
+    }
+
+    public boolean contains(long pos) {
+        return nodes.containsKey(pos);
+    }
+
+    public byte getConnections(long pos) {
+        return nodes.get(pos);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public void forEachNode(@NotNull NodeConsumer consumer) {
+        for (Long2ByteMap.Entry entry : nodes.long2ByteEntrySet()) {
+            consumer.accept(entry.getLongKey(), entry.getByteValue());
+        }
+    }
+
+    public void forEachConnected(long pos, @NotNull LongConsumer consumer) {
+        forEachConnected(pos, nodes.get(pos), consumer);
+    }
+
+    // number of nodes that would be connected to node at pos with given connections
+    public int countConnected(long pos, byte connections) {
+        int[] count = {0};
+        forEachConnected(pos, connections, (next) -> count[0]++);
+        return count[0];
+    }
+
+    // read only view safe to use from another thread, graph is copied only when modified before snapshot is released
+    @NotNull
+    public Snapshot snapshot() {
+        readers.incrementAndGet();
+        return new Snapshot(new NetworkGraph(nodes), readers);
+    }
+
+    // seeds of all parts that are no longer connected to the biggest part after removing node at pos
+    @NotNull
+    public LongList findDetachedSeeds(long pos, byte connections) {
+        LongArrayList seeds = new LongArrayList(DIRECTIONS.length);
+
+        forEachConnected(pos, connections, seeds::add);
+
+        if (seeds.size() <= 1) {
+            return LongLists.EMPTY_LIST;
+        }
+
+        int count = seeds.size();
+        LongArrayFIFOQueue[] queues = new LongArrayFIFOQueue[count];
+        int[] parent = new int[count];
+        int[] visited = new int[count];
+        boolean[] finished = new boolean[count];
+        Long2IntOpenHashMap owner = new Long2IntOpenHashMap();
+        int open = count;
+
+        owner.defaultReturnValue(-1);
+
+        for (int i = 0; i < count; i++) {
+            long seed = seeds.getLong(i);
+
+            parent[i] = i;
+            queues[i] = new LongArrayFIFOQueue();
+            queues[i].enqueue(seed);
+            owner.put(seed, i);
+            visited[i] = 1;
+        }
+
+        boolean progress = true;
+
+        // expand all searches in lockstep, so only the smaller parts are walked completely
+        while (open > 1 && progress) {
+            progress = false;
+
+            for (int i = 0; i < count && open > 1; i++) {
+                int group = find(parent, i);
+
+                if (finished[group] || queues[i].isEmpty()) {
+                    continue;
+                }
+
+                progress = true;
+
+                long current = queues[i].dequeueLong();
+                final int search = i;
+                final int[] merged = {0};
+
+                forEachConnected(current, nodes.get(current), (next) -> {
+                    int other = owner.get(next);
+
+                    if (other < 0) {
+                        owner.put(next, search);
+                        queues[search].enqueue(next);
+                        visited[search]++;
+                    } else {
+                        int a = find(parent, search);
+                        int b = find(parent, other);
+
+                        if (a != b) {
+                            parent[b] = a;
+                            merged[0]++;
+                        }
+                    }
+                });
+
+                open -= merged[0];
+
+                if (isExhausted(queues, parent, find(parent, i))) {
+                    finished[find(parent, i)] = true;
+                    open--;
+                }
+            }
+        }
+
+        LongArrayList result = new LongArrayList();
+        int biggest = -1;
+        int biggestSize = -1;
+
+        if (open == 1) {
+            // the only unfinished part keeps original network
+            for (int i = 0; i < count; i++) {
+                if (find(parent, i) == i && !finished[i]) {
+                    biggest = i;
+                }
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                if (find(parent, i) == i) {
+                    int size = groupSize(parent, visited, i);
+
+                    if (size > biggestSize) {
+                        biggest = i;
+                        biggestSize = size;
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (find(parent, i) == i && i != biggest) {
+                result.add(seeds.getLong(i));
+            }
+        }
+
+        return result;
+    }
+
+    public static byte getConnections(@NotNull BlockPos pos, @NotNull List<BlockPos> validNeighbors) {
+        byte connections = 0;
+
+        for (BlockPos neighbor : validNeighbors) {
+            for (Direction direction : DIRECTIONS) {
+                if (pos.getX() + direction.getStepX() == neighbor.getX() && pos.getY() + direction.getStepY() == neighbor.getY()
+                        && pos.getZ() + direction.getStepZ() == neighbor.getZ()) {
+                    connections |= mask(direction);
+                }
+            }
+        }
+
+        return connections;
+    }
+
+    public static void forEachNeighbor(long pos, byte connections, @NotNull LongConsumer consumer) {
+        for (Direction direction : DIRECTIONS) {
+            if ((connections & mask(direction)) != 0) {
+                consumer.accept(BlockPos.offset(pos, direction));
+            }
+        }
+    }
+
+    private void forEachConnected(long pos, byte connections, @NotNull LongConsumer consumer) {
+        for (Direction direction : DIRECTIONS) {
+            if ((connections & mask(direction)) != 0) {
+                long next = BlockPos.offset(pos, direction);
+
+                if (nodes.containsKey(next) && (nodes.get(next) & mask(direction.getOpposite())) != 0) {
+                    consumer.accept(next);
+                }
+            }
+        }
+    }
+
+    private void beforeModification() {
+        if (readers.get() > 0) {
+            nodes = nodes.clone();
+            readers = new AtomicInteger();
+        }
+    }
+
+    private static boolean isExhausted(@NotNull LongArrayFIFOQueue[] queues, int[] parent, int group) {
+        for (int i = 0; i < queues.length; i++) {
+            if (find(parent, i) == group && !queues[i].isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int groupSize(int[] parent, int[] visited, int group) {
+        int size = 0;
+
+        for (int i = 0; i < parent.length; i++) {
+            if (find(parent, i) == group) {
+                size += visited[i];
+            }
+        }
+
+        return size;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            i = parent[i];
+        }
+
+        return i;
+    }
+
+    private static byte mask(@NotNull Direction direction) {
+        return (byte) (1 << direction.get3DDataValue());
+    }
+
+    @FunctionalInterface
+    public interface NodeConsumer {
+        void accept(long pos, byte connections);
+    }
+
+    public record Snapshot(@NotNull NetworkGraph graph, @NotNull AtomicInteger readers) {
+        public void release() {
+            readers.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.yanny.ytech.network.generic.server;
+
+import it.unimi.dsi.fastutil.longs.LongList;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+// searches detached parts of network on worker threads over copy-on-write graph snapshot,
+// result is applied on server thread at start of next tick
+public class NetworkGraphEngine {
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    @NotNull private final Executor executor;
+    @NotNull private final BooleanSupplier async;
+
+    public NetworkGraphEngine(@NotNull BooleanSupplier async) {
+        this(createExecutor(), async);
+    }
+
+    public NetworkGraphEngine(@NotNull Executor executor, @NotNull BooleanSupplier async) {
+        this.executor = executor;
+        this.async = async;
+    }
+
+    public boolean isAsync() {
+        return async.getAsBoolean();
+    }
+
+    @NotNull
+    CompletableFuture<LongList> findDetachedSeeds(@NotNull NetworkGraph graph, long pos, byte connections) {
+        NetworkGraph.Snapshot snapshot = graph.snapshot();
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return snapshot.graph().findDetachedSeeds(pos, connections);
+            } finally {
+                snapshot.release();
+            }
+        }, executor);
+    }
+
+    @NotNull
+    private static Executor createExecutor() {
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+        return Executors.newFixedThreadPool(threads, (runnable) -> {
+            Thread thread = new Thread(runnable, "YTech Network Graph #" + THREAD_ID.incrementAndGet());
+
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
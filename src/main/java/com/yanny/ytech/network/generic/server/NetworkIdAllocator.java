@@ -0,0 +1,72 @@
+package com.yanny.ytech.network.generic.server;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import net.minecraft.nbt.CompoundTag;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.BitSet;
+
+public class NetworkIdAllocator {
+    private static final String TAG_NEXT_ID = "nextId";
+    private static final String TAG_FREE_IDS = "freeIds";
+
+    @NotNull private final IntArrayList freeIds = new IntArrayList();
+    @NotNull private final BitSet freeIdSet = new BitSet();
+    private int nextId = 0;
+
+    public int allocate() {
+        if (!freeIds.isEmpty()) {
+            int id = freeIds.popInt();
+
+            freeIdSet.clear(id);
+            return id;
+        }
+
+        if (nextId == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Can't generate new ID for network!");
+        }
+
+        return nextId++;
+    }
+
+    public void release(int id) {
+        if (id >= 0 && id < nextId && !freeIdSet.get(id)) {
+            freeIds.add(id);
+            freeIdSet.set(id);
+        }
+    }
+
+    public void load(@NotNull CompoundTag tag, @NotNull IntSet usedIds) {
+        freeIds.clear();
+        freeIdSet.clear();
+
+        if (tag.contains(TAG_NEXT_ID)) {
+            nextId = Math.max(tag.getInt(TAG_NEXT_ID), usedIds.intStream().max().orElse(-1) + 1);
+
+            for (int id : tag.getIntArray(TAG_FREE_IDS)) {
+                if (!usedIds.contains(id)) {
+                    release(id);
+                }
+            }
+        } else {
+            // older saves have no allocator state, recover it from used ids
+            nextId = usedIds.intStream().max().orElse(-1) + 1;
+
+            for (int id = nextId - 1; id >= 0; id--) {
+                if (!usedIds.contains(id)) {
+                    release(id);
+                }
+            }
+        }
+    }
+
+    @NotNull
+    public CompoundTag save() {
+        CompoundTag tag = new CompoundTag();
+
+        tag.putInt(TAG_NEXT_ID, nextId);
+        tag.putIntArray(TAG_FREE_IDS, freeIds.toIntArray());
+        return tag;
+    }
+}
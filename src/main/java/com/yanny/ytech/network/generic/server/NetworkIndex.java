@@ -0,0 +1,69 @@
+package com.yanny.ytech.network.generic.server;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+public class NetworkIndex {
+    private static final int NO_NETWORK = -1;
+
+    @NotNull private final Long2IntOpenHashMap positionMap = new Long2IntOpenHashMap();
+    @NotNull private final NetworkChunkIndex chunkIndex;
+    private final int typeId;
+
+    // chunk part is shared by all network types of level
+    NetworkIndex(@NotNull NetworkChunkIndex chunkIndex, int typeId) {
+        this.chunkIndex = chunkIndex;
+        this.typeId = typeId;
+        positionMap.defaultReturnValue(NO_NETWORK);
+    }
+
+    public int getNetworkId(@NotNull BlockPos pos) {
+        return positionMap.get(pos.asLong());
+    }
+
+    public int getNetworkId(long pos) {
+        return positionMap.get(pos);
+    }
+
+    @NotNull
+    public IntSet getNetworkIds(@NotNull Collection<BlockPos> positions) {
+        IntSet result = new IntOpenHashSet(positions.size());
+
+        for (BlockPos pos : positions) {
+            int networkId = positionMap.get(pos.asLong());
+
+            if (networkId != NO_NETWORK) {
+                result.add(networkId);
+            }
+        }
+
+        return result;
+    }
+
+    @NotNull
+    public IntSet getNetworkIds(@NotNull ChunkPos chunkPos) {
+        return chunkIndex.getNetworkIds(chunkPos.toLong(), typeId);
+    }
+
+    void put(long pos, int networkId) {
+        positionMap.put(pos, networkId);
+    }
+
+    void remove(long pos, int networkId) {
+        positionMap.remove(pos, networkId);
+    }
+
+    void addChunk(long chunkPos, int networkId) {
+        chunkIndex.add(chunkPos, typeId, networkId);
+    }
+
+    void removeChunk(long chunkPos, int networkId) {
+        chunkIndex.remove(chunkPos, typeId, networkId);
+    }
+}
@@ -0,0 +1,34 @@
+package com.yanny.ytech.network.generic.server;
+
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.server.level.ServerPlayer;
+import net.neoforged.neoforge.network.PacketDistributor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// payloads of all network types queued during server tick, each player receives them in order as single bundle packet
+public class NetworkSyncBatch {
+    @NotNull private final Map<ServerPlayer, List<CustomPacketPayload>> pending = new LinkedHashMap<>();
+
+    public void queue(@NotNull ServerPlayer player, @NotNull CustomPacketPayload payload) {
+        pending.computeIfAbsent(player, (k) -> new ArrayList<>()).add(payload);
+    }
+
+    public void flush() {
+        pending.forEach((player, payloads) -> {
+            // player disconnected during tick
+            if (!player.hasDisconnected()) {
+                PacketDistributor.sendToPlayer(player, payloads.getFirst(), payloads.subList(1, payloads.size()).toArray(CustomPacketPayload[]::new));
+            }
+        });
+        pending.clear();
+    }
+
+    public void clear() {
+        pending.clear();
+    }
+}
@@ -1,8 +1,14 @@
 package com.yanny.ytech.network.generic.server;
 
 import com.mojang.logging.LogUtils;
+import com.yanny.ytech.YTechMod;
 import com.yanny.ytech.network.generic.common.INetworkBlockEntity;
 import com.yanny.ytech.network.generic.common.NetworkFactory;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.core.registries.Registries;
 import net.minecraft.nbt.CompoundTag;
@@ -12,46 +18,62 @@ import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerChunkCache;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.saveddata.SavedData;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class ServerLevelData<T extends ServerNetwork<T, O>, O extends INetworkBlockEntity> extends SavedData {
     protected static final String TAG_NETWORKS = "networks";
     protected static final String TAG_NETWORK = "network";
     protected static final String TAG_NETWORK_ID = "networkId";
+    protected static final String TAG_ID_ALLOCATOR = "idAllocator";
     protected static final Logger LOGGER = LogUtils.getLogger();
 
     @NotNull private final ConcurrentHashMap<Integer, T> networkMap = new ConcurrentHashMap<>();
+    @NotNull private final NetworkIndex networkIndex;
+    @NotNull private final NetworkIdAllocator idAllocator = new NetworkIdAllocator();
+    @NotNull private final IntSet dirtyNetworks = new IntOpenHashSet();
+    @NotNull private final ArrayDeque<PendingSplit> pendingSplits = new ArrayDeque<>();
     @NotNull private final NetworkFactory<T, O> networkFactory;
+    @NotNull private final NetworkGraphEngine graphEngine;
     @NotNull private final ResourceLocation levelId;
     @NotNull private final MinecraftServer server;
     @NotNull private final String networkName;
 
     ServerLevelData(@NotNull CompoundTag tag, @NotNull ResourceLocation levelId, @NotNull MinecraftServer server,
-                    @NotNull NetworkFactory<T, O> networkFactory, @NotNull String networkName, @NotNull HolderLookup.Provider provider) {
+                    @NotNull NetworkFactory<T, O> networkFactory, @NotNull NetworkGraphEngine graphEngine, @NotNull NetworkIndex networkIndex,
+                    @NotNull String networkName, @NotNull HolderLookup.Provider provider) {
         this.levelId = levelId;
         this.server = server;
         this.networkName = networkName;
         this.networkFactory = networkFactory;
+        this.graphEngine = graphEngine;
+        this.networkIndex = networkIndex;
         load(tag, provider);
     }
 
-    ServerLevelData(@NotNull ResourceLocation levelId, @NotNull MinecraftServer server, @NotNull NetworkFactory<T, O> networkFactory, @NotNull String networkName) {
+    ServerLevelData(@NotNull ResourceLocation levelId, @NotNull MinecraftServer server, @NotNull NetworkFactory<T, O> networkFactory,
+                    @NotNull NetworkGraphEngine graphEngine, @NotNull NetworkIndex networkIndex, @NotNull String networkName) {
         this.levelId = levelId;
         this.server = server;
         this.networkFactory = networkFactory;
+        this.graphEngine = graphEngine;
+        this.networkIndex = networkIndex;
         this.networkName = networkName;
     }
 
@@ -60,6 +82,12 @@ public class ServerLevelData<T extends ServerNetwork<T, O>, O extends INetworkBl
     public CompoundTag save(@NotNull CompoundTag tag, @NotNull HolderLookup.Provider provider) {
         ListTag list = new ListTag();
         AtomicInteger index = new AtomicInteger();
+        ServerLevel level = server.getLevel(ResourceKey.create(Registries.DIMENSION, levelId));
+
+        // saved networks must not contain disconnected parts, waits for unfinished splits
+        if (level != null) {
+            applyPendingSplits(level, true);
+        }
 
         networkMap.forEach((networkId, network) -> {
             CompoundTag itemHolder = new CompoundTag();
@@ -68,11 +96,13 @@ public class ServerLevelData<T extends ServerNetwork<T, O>, O extends INetworkBl
             list.add(index.getAndIncrement(), itemHolder);
         });
         tag.put(TAG_NETWORKS, list);
+        tag.put(TAG_ID_ALLOCATOR, idAllocator.save());
         return tag;
     }
 
     public void add(@NotNull O blockEntity) {
         final int networkId = blockEntity.getNetworkId();
+        long begin = YTechMod.NETWORK_METRICS.begin();
         T resultNetwork;
 
         if (blockEntity.getLevel() instanceof ServerLevel level) {
@@ -85,11 +115,13 @@ public class ServerLevelData<T extends ServerNetwork<T, O>, O extends INetworkBl
                     return;
                 }
             } else {
-                //TODO possible performance improvement: first check network area intersection
-                List<T> networks = networkMap.values().stream().filter((n) -> n.canConnect(blockEntity)).toList();
+                ArrayList<T> networks = networkIndex.getNetworkIds(blockEntity.getValidNeighbors()).intStream()
+                        .mapToObj(networkMap::get)
+                        .filter((n) -> n != null && n.canConnect(blockEntity))
+                        .collect(Collectors.toCollection(ArrayList::new));
 
                 if (networks.isEmpty()) {
-                    T network = networkFactory.createNetwork(getUniqueId(), this::onChange, this::onRemove);
+                    T network = networkFactory.createNetwork(getUniqueId(), this::onChange, this::onRemove, networkIndex);
                     networkMap.put(network.getNetworkId(), network);
                     resultNetwork = network;
                 } else if (networks.size() == 1) {
@@ -101,45 +133,38 @@ public class ServerLevelData<T extends ServerNetwork<T, O>, O extends INetworkBl
                         return;
                     }
                 } else {
-                    ArrayList<T> distinctNetworks = networks.stream().filter(distinctByKey(T::getNetworkId)).collect(Collectors.toCollection(ArrayList::new));
-
-                    if (distinctNetworks.size() == 1) {
-                        resultNetwork = distinctNetworks.getFirst();
-
-                        if (!resultNetwork.canAttach(blockEntity)) {
-                            LOGGER.warn("[{}] Can't attach block {} to network at {}", networkName, blockEntity, blockEntity.getBlockPos());
-                            level.destroyBlock(blockEntity.getBlockPos(), true);
-                            return;
-                        }
-                    } else {
-                        T network = distinctNetworks.removeFirst();
-
-                        if (!network.canAttach(blockEntity) || !distinctNetworks.stream().allMatch((n) -> n.canAttach(blockEntity) && n.canAttach(network))) {
-                            LOGGER.warn("[{}] Can't attach block {} to network at {}", networkName, blockEntity, blockEntity.getBlockPos());
-                            level.destroyBlock(blockEntity.getBlockPos(), true);
-                            return;
-                        }
-
-                        do {
-                            T toRemove = distinctNetworks.removeFirst();
-
-                            network.appendNetwork(toRemove, level);
-                            networkMap.remove(toRemove.getNetworkId());
-                            network.getChunks().stream()
-                                    .map((chunkPos) -> level.getChunkSource().chunkMap.getPlayers(chunkPos, false))
-                                    .flatMap(Collection::stream)
-                                    .collect(Collectors.toSet())
-                                    .forEach((player) -> networkFactory.sendRemoved(player, toRemove.getNetworkId()));
-                        } while (!distinctNetworks.isEmpty());
-
-                        resultNetwork = network;
+                    T network = networks.removeFirst();
+                    int mergedBlocks = 0;
+
+                    if (!network.canAttach(blockEntity) || !networks.stream().allMatch((n) -> n.canAttach(blockEntity) && n.canAttach(network))) {
+                        LOGGER.warn("[{}] Can't attach block {} to network at {}", networkName, blockEntity, blockEntity.getBlockPos());
+                        level.destroyBlock(blockEntity.getBlockPos(), true);
+                        return;
                     }
+
+                    do {
+                        T toRemove = networks.removeFirst();
+
+                        mergedBlocks += toRemove.graph.size();
+                        network.appendNetwork(toRemove, level);
+                        networkMap.remove(toRemove.getNetworkId());
+                        idAllocator.release(toRemove.getNetworkId());
+                        network.getChunks().longStream()
+                                .mapToObj((chunkPos) -> level.getChunkSource().chunkMap.getPlayers(new ChunkPos(chunkPos), false))
+                                .flatMap(Collection::stream)
+                                .collect(Collectors.toSet())
+                                .forEach((player) -> networkFactory.sendRemoved(player, toRemove.getNetworkId()));
+                    } while (!networks.isEmpty());
+
+                    YTechMod.NETWORK_METRICS.recordSize(networkName, "mergedBlocks", mergedBlocks);
+                    resultNetwork = network;
                 }
             }
 
             resultNetwork.addBlockEntity(blockEntity);
             setDirty();
-            resultNetwork.setDirty();
+            markDirty(resultNetwork);
+            YTechMod.NETWORK_METRICS.end(networkName, "add", begin, resultNetwork.graph.size());
         } else {
             LOGGER.warn("[{}][add] Invalid level: {}", networkName, blockEntity.getLevel());
         }
@@ -147,18 +172,22 @@ public class ServerLevelData<T extends ServerNetwork<T, O>, O extends INetworkBl
 
     public void update(@NotNull O blockEntity) {
         T network = getNetwork(blockEntity);
+        long begin = YTechMod.NETWORK_METRICS.begin();
 
         if (blockEntity.getLevel() instanceof ServerLevel level) {
             if (network != null) {
                 if (network.canAttach(blockEntity)) {
+                    network.updateConnections(blockEntity);
+
                     if (network.updateBlockEntity(blockEntity)) {
                         setDirty();
-                        network.setDirty();
+                        markDirty(network);
                     }
                 } else {
-                    List<T> networks = network.removeBlockEntity(this::getUniqueIds, this::onRemove, blockEntity);
+                    List<T> networks = network.removeBlockEntity(this::getUniqueId, this::onRemove, blockEntity);
+                    recordSplit(networks);
                     networkMap.putAll(networks.stream().collect(Collectors.toMap(ServerNetwork::getNetworkId, (n) -> {
-                        n.setDirty();
+                        markDirty(n);
                         return n;
                     })));
                     level.destroyBlock(blockEntity.getBlockPos(), true);
@@ -166,9 +195,11 @@ public class ServerLevelData<T extends ServerNetwork<T, O>, O extends INetworkBl
                     setDirty();
 
                     if (network.isNotEmpty()) {
-                        network.setDirty();
+                        markDirty(network);
                     }
                 }
+
+                YTechMod.NETWORK_METRICS.end(networkName, "update", begin, network.graph.size());
             } else {
                 LOGGER.warn("[{}] UPDATE: Can't get network for block {} at {}", networkName, blockEntity, blockEntity.getBlockPos());
             }
@@ -179,31 +210,125 @@ public class ServerLevelData<T extends ServerNetwork<T, O>, O extends INetworkBl
 
     public void remove(@NotNull O blockEntity) {
         T network = getNetwork(blockEntity);
+        long begin = YTechMod.NETWORK_METRICS.begin();
 
         if (network != null) {
-            List<T> networks = network.removeBlockEntity(this::getUniqueIds, this::onRemove, blockEntity);
-            networkMap.putAll(networks.stream().peek(ServerNetwork::setDirty).collect(Collectors.toMap(ServerNetwork::getNetworkId, n -> n)));
+            long blockPos = blockEntity.getBlockPos().asLong();
+            byte connections = network.graph.getConnections(blockPos);
+
+            if (graphEngine.isAsync() && blockEntity.getLevel() != null) {
+                network.detachBlockEntity(blockEntity);
+
+                // network can't fall apart when removed block had at most one connected neighbor
+                if (network.isNotEmpty() && network.graph.countConnected(blockPos, connections) > 1) {
+                    pendingSplits.add(new PendingSplit(network, network.getGraphVersion(), blockPos, connections,
+                            graphEngine.findDetachedSeeds(network.graph, blockPos, connections)));
+                }
+            } else {
+                List<T> networks = network.removeBlockEntity(this::getUniqueId, this::onRemove, blockEntity);
+                recordSplit(networks);
+                networkMap.putAll(networks.stream().peek(this::markDirty).collect(Collectors.toMap(ServerNetwork::getNetworkId, n -> n)));
+            }
+
             setDirty();
 
             if (network.isNotEmpty()) {
-                network.setDirty();
+                markDirty(network);
             }
+
+            YTechMod.NETWORK_METRICS.end(networkName, "remove", begin, network.graph.size());
         } else {
             LOGGER.warn("[{}] REMOVE: Can't get network for block {} at {}", networkName, blockEntity, blockEntity.getBlockPos());
         }
     }
 
-    public void tick(@NotNull ServerChunkCache chunkCache) {
-        networkMap.values().forEach((network) -> {
-            if (network.isDirty()) {
-                network.getChunks().stream()
-                        .map((chunkPos) -> chunkCache.chunkMap.getPlayers(chunkPos, false))
-                        .flatMap(Collection::stream)
-                        .collect(Collectors.toSet())
-                        .forEach((player) -> networkFactory.sendUpdated(player, network));
-                network.setClean();
+    public void applyPendingSplits(@NotNull ServerLevel level) {
+        applyPendingSplits(level, false);
+    }
+
+    // applied in removal order, unfinished splits wait for next tick unless forced,
+    // result is recomputed on current graph when network changed since snapshot
+    private void applyPendingSplits(@NotNull ServerLevel level, boolean wait) {
+        if (pendingSplits.isEmpty()) {
+            return;
+        }
+
+        long begin = YTechMod.NETWORK_METRICS.begin();
+        int applied = 0;
+
+        while (!pendingSplits.isEmpty() && (wait || pendingSplits.peekFirst().seeds().isDone())) {
+            PendingSplit split = pendingSplits.pollFirst();
+            LongList seeds = split.seeds().join();
+            IntSet networkIds = new IntOpenHashSet();
+
+            NetworkGraph.forEachNeighbor(split.blockPos(), split.connections(), (neighbor) -> {
+                int networkId = networkIndex.getNetworkId(neighbor);
+
+                if (networkId >= 0) {
+                    networkIds.add(networkId);
+                }
+            });
+
+            networkIds.forEach((int networkId) -> {
+                T network = networkMap.get(networkId);
+
+                if (network != null) {
+                    // network ids are recycled, only same instance with unchanged graph can use snapshot result
+                    boolean valid = network == split.network() && network.getGraphVersion() == split.graphVersion();
+                    LongList detachedSeeds = valid ? filterSeeds(network, seeds) : network.graph.findDetachedSeeds(split.blockPos(), split.connections());
+                    List<T> networks = network.split(this::getUniqueId, this::onRemove, detachedSeeds, level);
+
+                    recordSplit(networks);
+
+                    if (!networks.isEmpty()) {
+                        networks.forEach((n) -> {
+                            networkMap.put(n.getNetworkId(), n);
+                            markDirty(n);
+                        });
+                        markDirty(network);
+                        setDirty();
+                    }
+                }
+            });
+            applied++;
+        }
+
+        if (applied > 0) {
+            YTechMod.NETWORK_METRICS.end(networkName, "applySplits", begin, applied);
+        }
+    }
+
+    public void tick(@NotNull ServerLevel level) {
+        if (dirtyNetworks.isEmpty()) {
+            return;
+        }
+
+        // coalesce all updates to single packet per player
+        long begin = YTechMod.NETWORK_METRICS.begin();
+        Map<ServerPlayer, Set<T>> updates = new HashMap<>();
+        ServerChunkCache chunkCache = level.getChunkSource();
+        long gameTime = level.getGameTime();
+        IntIterator iterator = dirtyNetworks.iterator();
+
+        while (iterator.hasNext()) {
+            T network = networkMap.get(iterator.nextInt());
+
+            if (network == null) {
+                iterator.remove();
+            } else if (network.shouldSync(gameTime)) {
+                network.getChunks().forEach((long chunkPos) -> chunkCache.chunkMap.getPlayers(new ChunkPos(chunkPos), false)
+                        .forEach((player) -> updates.computeIfAbsent(player, (k) -> new LinkedHashSet<>()).add(network)));
+                network.onSynced(gameTime);
+                iterator.remove();
+            } else if (!network.hasPendingSync()) {
+                // content went back to already synced state
+                iterator.remove();
             }
-        });
+        }
+
+        updates.forEach(networkFactory::sendUpdated);
+        YTechMod.NETWORK_METRICS.recordSize(networkName, "syncPlayers", updates.size());
+        YTechMod.NETWORK_METRICS.end(networkName, "sync", begin, updates.values().stream().mapToInt(Set::size).sum());
     }
 
     @NotNull
@@ -215,9 +340,34 @@ public class ServerLevelData<T extends ServerNetwork<T, O>, O extends INetworkBl
         return networkMap.get(blockEntity.getNetworkId());
     }
 
+    @NotNull
+    public IntSet getNetworkIds(@NotNull ChunkPos chunkPos) {
+        return networkIndex.getNetworkIds(chunkPos);
+    }
+
+    private void recordSplit(@NotNull List<T> networks) {
+        if (!networks.isEmpty()) {
+            YTechMod.NETWORK_METRICS.recordSize(networkName, "splitNetworks", networks.size());
+            YTechMod.NETWORK_METRICS.recordSize(networkName, "splitBlocks", networks.stream().mapToInt((n) -> n.graph.size()).sum());
+        }
+    }
+
+    private void markDirty(@NotNull T network) {
+        network.setDirty();
+        dirtyNetworks.add(network.getNetworkId());
+        networkFactory.onNetworkChanged(levelId, network);
+    }
+
     private void onChange(int networkId) {
-        networkMap.get(networkId).setDirty();
+        T network = networkMap.get(networkId);
+
+        // content change, sync is decided by network sync policy
+        dirtyNetworks.add(networkId);
         setDirty();
+
+        if (network != null) {
+            networkFactory.onNetworkChanged(levelId, network);
+        }
     }
 
     private void onRemove(int networkId, @NotNull ChunkPos chunkPos) {
@@ -225,6 +375,7 @@ public class ServerLevelData<T extends ServerNetwork<T, O>, O extends INetworkBl
 
         if (level != null) {
             networkMap.remove(networkId);
+            idAllocator.release(networkId);
             level.getChunkSource().chunkMap.getPlayers(chunkPos, false)
                     .forEach((player) -> networkFactory.sendRemoved(player, networkId));
             setDirty();
@@ -232,31 +383,12 @@ public class ServerLevelData<T extends ServerNetwork<T, O>, O extends INetworkBl
     }
 
     private int getUniqueId() {
-        for (int i = 0; i < Integer.MAX_VALUE; i++) {
-            if (!networkMap.containsKey(i)) {
-                return i;
-            }
-        }
-
-        LOGGER.error("[{}] Network keys overflow!", networkName);
-        throw new IllegalStateException("Can't generate new ID for network!");
-    }
-
-    private List<Integer> getUniqueIds(int count) {
-        List<Integer> result = new ArrayList<>();
-
-        for (int i = 0; i < Integer.MAX_VALUE; i++) {
-            if (!networkMap.containsKey(i)) {
-                result.add(i);
-
-                if (result.size() == count) {
-                    return result;
-                }
-            }
+        try {
+            return idAllocator.allocate();
+        } catch (IllegalStateException e) {
+            LOGGER.error("[{}] Network keys overflow!", networkName);
+            throw e;
         }
-
-        LOGGER.error("[{}] Network keys overflow!", networkName);
-        throw new IllegalStateException("Can't generate new ID for network!");
     }
 
     private void load(@NotNull CompoundTag tag, @NotNull HolderLookup.Provider provider) {
@@ -266,16 +398,29 @@ public class ServerLevelData<T extends ServerNetwork<T, O>, O extends INetworkBl
             list.forEach((listItem) -> {
                 CompoundTag itemHolder = (CompoundTag) listItem;
                 int networkId = itemHolder.getInt(TAG_NETWORK_ID);
-                networkMap.put(networkId, networkFactory.createNetwork(itemHolder.getCompound(TAG_NETWORK), networkId, this::onChange, this::onRemove, provider));
+                networkMap.put(networkId, networkFactory.createNetwork(itemHolder.getCompound(TAG_NETWORK), networkId, this::onChange, this::onRemove, networkIndex, provider));
             });
 
             LOGGER.debug("[{}] Loaded {} networks", networkName, networkMap.size());
         } else {
             LOGGER.debug("[{}] No network loaded", networkName);
         }
+
+        idAllocator.load(tag.getCompound(TAG_ID_ALLOCATOR), new IntOpenHashSet(networkMap.keySet()));
     }
 
-    private static <T> Predicate<T> distinctByKey(@NotNull Function<? super T, ?> keyExtractor) {
-        return t -> ConcurrentHashMap.newKeySet().add(keyExtractor.apply(t));
+    @NotNull
+    private static LongList filterSeeds(@NotNull ServerNetwork<?, ?> network, @NotNull LongList seeds) {
+        LongList result = new LongArrayList(seeds.size());
+
+        seeds.forEach((long seed) -> {
+            if (network.graph.contains(seed)) {
+                result.add(seed);
+            }
+        });
+
+        return result;
     }
+
+    private record PendingSplit(@NotNull ServerNetwork<?, ?> network, int graphVersion, long blockPos, byte connections, @NotNull CompletableFuture<LongList> seeds) {}
 }
@@ -1,14 +1,23 @@
 package com.yanny.ytech.network.generic.server;
 
-import com.google.common.collect.Sets;
 import com.mojang.logging.LogUtils;
 import com.yanny.ytech.network.generic.NetworkUtils;
 import com.yanny.ytech.network.generic.common.CommonNetwork;
 import com.yanny.ytech.network.generic.common.INetworkBlockEntity;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.HolderLookup;
+import net.minecraft.core.SectionPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.level.ServerChunkCache;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import org.jetbrains.annotations.NotNull;
@@ -17,25 +26,31 @@ import org.slf4j.Logger;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.function.IntSupplier;
 
 public abstract class ServerNetwork<N extends ServerNetwork<N, O>, O extends INetworkBlockEntity> extends CommonNetwork {
     private static final String TAG_CHUNK_MAP = "chunkMap";
     private static final String TAG_POS_MAP = "posMap";
     private static final String TAG_BLOCK_POS = "blockPos";
     private static final String TAG_CHUNK_POS = "chunkPos";
+    private static final String TAG_CONNECTIONS = "connections";
+    private static final String TAG_POSITIONS = "positions";
     private static final Logger LOGGER = LogUtils.getLogger();
 
     @NotNull protected final Consumer<Integer> onChange;
     @NotNull protected final BiConsumer<Integer, ChunkPos> onRemove;
-    @NotNull private final Map<ChunkPos, Set<BlockPos>> chunkMap = new HashMap<>();
+    @NotNull protected final NetworkIndex networkIndex;
+    @NotNull protected final NetworkGraph graph = new NetworkGraph();
+    @NotNull private final Long2ObjectMap<LongSet> chunkMap = new Long2ObjectOpenHashMap<>();
 
     private boolean dirty = false;
+    private int graphVersion = 0;
 
-    public ServerNetwork(int networkId, @NotNull Consumer<Integer> onChange, @NotNull BiConsumer<Integer, ChunkPos> onRemove) {
+    public ServerNetwork(int networkId, @NotNull Consumer<Integer> onChange, @NotNull BiConsumer<Integer, ChunkPos> onRemove, @NotNull NetworkIndex networkIndex) {
         super(networkId);
         this.onChange = onChange;
         this.onRemove = onRemove;
+        this.networkIndex = networkIndex;
     }
 
     protected abstract boolean canAttach(@NotNull O blockEntity);
@@ -43,12 +58,38 @@ public abstract class ServerNetwork<N extends ServerNetwork<N, O>, O extends INe
     protected abstract boolean canAttach(@NotNull N network);
 
     protected void load(@NotNull CompoundTag tag, @NotNull HolderLookup.Provider provider) {
-        if (tag.contains(TAG_CHUNK_MAP) && tag.getTagType(TAG_CHUNK_MAP) != 0) {
+        if (tag.contains(TAG_POSITIONS, Tag.TAG_LONG_ARRAY)) {
+            long[] positions = tag.getLongArray(TAG_POSITIONS);
+            byte[] connections = tag.getByteArray(TAG_CONNECTIONS);
+
+            for (int i = 0; i < positions.length; i++) {
+                long chunkPos = ChunkPos.asLong(BlockPos.of(positions[i]));
+
+                if (chunkMap.computeIfAbsent(chunkPos, (k) -> new LongOpenHashSet()).add(positions[i])) {
+                    networkIndex.put(positions[i], getNetworkId());
+                    networkIndex.addChunk(chunkPos, getNetworkId());
+                    graph.add(positions[i], i < connections.length ? connections[i] : NetworkGraph.HORIZONTAL_CONNECTIONS);
+                }
+            }
+        } else if (tag.contains(TAG_CHUNK_MAP) && tag.getTagType(TAG_CHUNK_MAP) != 0) {
+            // older saves stored every position as compound
             tag.getList(TAG_CHUNK_MAP, ListTag.TAG_COMPOUND).forEach((t) -> {
-                Set<BlockPos> blockPosSet = new HashSet<>();
-                ((CompoundTag) t).getList(TAG_POS_MAP, ListTag.TAG_COMPOUND).forEach((u) -> blockPosSet.add(NetworkUtils.loadBlockPos(((CompoundTag) u).getCompound(TAG_BLOCK_POS))));
+                LongSet blockPosSet = new LongOpenHashSet();
+                ((CompoundTag) t).getList(TAG_POS_MAP, ListTag.TAG_COMPOUND).forEach((u) -> {
+                    CompoundTag posTag = (CompoundTag) u;
+                    long blockPos = NetworkUtils.loadBlockPos(posTag.getCompound(TAG_BLOCK_POS)).asLong();
+
+                    blockPosSet.add(blockPos);
+                    // older saves have no connections stored, all aqueduct blocks connects horizontally
+                    graph.add(blockPos, posTag.contains(TAG_CONNECTIONS) ? posTag.getByte(TAG_CONNECTIONS) : NetworkGraph.HORIZONTAL_CONNECTIONS);
+                });
+                long chunkPos = NetworkUtils.loadChunkPos(((CompoundTag) t).getCompound(TAG_CHUNK_POS)).toLong();
 
-                chunkMap.put(NetworkUtils.loadChunkPos(((CompoundTag) t).getCompound(TAG_CHUNK_POS)), blockPosSet);
+                if (!blockPosSet.isEmpty()) {
+                    blockPosSet.forEach((long blockPos) -> networkIndex.put(blockPos, getNetworkId()));
+                    networkIndex.addChunk(chunkPos, getNetworkId());
+                    chunkMap.put(chunkPos, blockPosSet);
+                }
             });
         }
     }
@@ -56,22 +97,23 @@ public abstract class ServerNetwork<N extends ServerNetwork<N, O>, O extends INe
     @NotNull
     protected CompoundTag save(@NotNull HolderLookup.Provider provider) {
         CompoundTag tag = new CompoundTag();
-        ListTag chunksTag = new ListTag();
+        int count = chunkMap.values().stream().mapToInt(LongSet::size).sum();
+        long[] positions = new long[count];
+        byte[] connections = new byte[count];
+        int i = 0;
 
-        chunkMap.forEach((pos, set) -> {
-            CompoundTag t = new CompoundTag();
-            ListTag posTag = new ListTag();
+        for (LongSet set : chunkMap.values()) {
+            LongIterator iterator = set.iterator();
 
-            t.put(TAG_CHUNK_POS, NetworkUtils.saveChunkPos(pos));
-            set.forEach((blockPos) -> {
-                CompoundTag u = new CompoundTag();
-                u.put(TAG_BLOCK_POS, NetworkUtils.saveBlockPos(blockPos));
-                posTag.add(u);
-            });
-            t.put(TAG_POS_MAP, posTag);
-            chunksTag.add(t);
-        });
-        tag.put(TAG_CHUNK_MAP, chunksTag);
+            while (iterator.hasNext()) {
+                positions[i] = iterator.nextLong();
+                connections[i] = graph.getConnections(positions[i]);
+                i++;
+            }
+        }
+
+        tag.putLongArray(TAG_POSITIONS, positions);
+        tag.putByteArray(TAG_CONNECTIONS, connections);
         return tag;
     }
 
@@ -79,51 +121,134 @@ public abstract class ServerNetwork<N extends ServerNetwork<N, O>, O extends INe
 
     protected abstract boolean updateBlockEntity(@NotNull O blockEntity);
 
+    // removes block without splitting network, disconnected parts are separated later with split
+    protected abstract void detachBlockEntity(@NotNull O blockEntity);
+
     @NotNull
-    protected abstract List<N> removeBlockEntity(@NotNull Function<Integer, List<Integer>> idsGetter, @NotNull BiConsumer<Integer, ChunkPos> onRemove, @NotNull O blockEntity);
+    protected abstract List<N> split(@NotNull IntSupplier idGetter, @NotNull BiConsumer<Integer, ChunkPos> onRemove, @NotNull LongList detachedSeeds, @NotNull Level level);
 
     protected abstract boolean isNotEmpty();
 
     protected abstract boolean isValidPosition(@NotNull O blockEntity, @NotNull BlockPos pos);
 
+    @NotNull
+    protected List<N> removeBlockEntity(@NotNull IntSupplier idGetter, @NotNull BiConsumer<Integer, ChunkPos> onRemove, @NotNull O blockEntity) {
+        Level level = blockEntity.getLevel();
+        long blockPos = blockEntity.getBlockPos().asLong();
+        byte connections = graph.getConnections(blockPos);
+
+        detachBlockEntity(blockEntity);
+
+        if (!isNotEmpty() || level == null) {
+            return List.of();
+        }
+
+        return split(idGetter, onRemove, graph.findDetachedSeeds(blockPos, connections), level);
+    }
+
     protected void addBlockEntity(@NotNull O blockEntity) {
-        ChunkPos chunkPos = new ChunkPos(blockEntity.getBlockPos());
+        long blockPos = blockEntity.getBlockPos().asLong();
+        long chunkPos = ChunkPos.asLong(blockEntity.getBlockPos());
+        LongSet blockPosSet = chunkMap.get(chunkPos);
 
         blockEntity.setNetworkId(getNetworkId());
 
-        if (chunkMap.containsKey(chunkPos)) {
-            chunkMap.get(chunkPos).add(blockEntity.getBlockPos());
-        } else {
-            chunkMap.put(chunkPos, Sets.newHashSet(blockEntity.getBlockPos()));
+        if (blockPosSet == null) {
+            blockPosSet = new LongOpenHashSet();
+            chunkMap.put(chunkPos, blockPosSet);
+            networkIndex.addChunk(chunkPos, getNetworkId());
         }
+
+        blockPosSet.add(blockPos);
+        networkIndex.put(blockPos, getNetworkId());
+        graph.add(blockEntity.getBlockPos(), blockEntity.getValidNeighbors());
+        graphVersion++;
     }
 
     protected void removeBlockEntity(@NotNull O blockEntity) {
+        long blockPos = blockEntity.getBlockPos().asLong();
         ChunkPos chunkPos = new ChunkPos(blockEntity.getBlockPos());
-        Set<BlockPos> blockPosSet = chunkMap.get(chunkPos);
+        LongSet blockPosSet = chunkMap.get(chunkPos.toLong());
 
         if (blockPosSet != null) {
-            if (blockPosSet.isEmpty() && chunkMap.size() > 1) {
-                chunkMap.remove(chunkPos);
+            blockPosSet.remove(blockPos);
+
+            if (blockPosSet.isEmpty()) {
+                chunkMap.remove(chunkPos.toLong());
+                networkIndex.removeChunk(chunkPos.toLong(), getNetworkId());
             }
         } else {
             LOGGER.warn("{} NULL BlockPos", getNetworkId());
         }
 
+        networkIndex.remove(blockPos, getNetworkId());
+        graph.remove(blockPos);
+        graphVersion++;
         blockEntity.setNetworkId(-1);
 
-
         if (!isNotEmpty()) {
             onRemove.accept(getNetworkId(), chunkPos);
         }
     }
 
-    protected boolean canConnect(@NotNull O blockEntity) {
-        return blockEntity.getValidNeighbors().stream().anyMatch(pos -> isValidPosition(blockEntity, pos));
+    // moves single position with its connections to other network, block entity is left for caller to update
+    protected void movePosition(long blockPos, @NotNull N network) {
+        ServerNetwork<N, O> target = network;
+        long chunkPos = ChunkPos.asLong(SectionPos.blockToSectionCoord(BlockPos.getX(blockPos)), SectionPos.blockToSectionCoord(BlockPos.getZ(blockPos)));
+        LongSet blockPosSet = chunkMap.get(chunkPos);
+        byte connections = graph.getConnections(blockPos);
+
+        if (blockPosSet != null && blockPosSet.remove(blockPos) && blockPosSet.isEmpty()) {
+            chunkMap.remove(chunkPos);
+            networkIndex.removeChunk(chunkPos, getNetworkId());
+        }
+
+        networkIndex.remove(blockPos, getNetworkId());
+        graph.remove(blockPos);
+        graphVersion++;
+
+        LongSet targetPosSet = target.chunkMap.get(chunkPos);
+
+        if (targetPosSet == null) {
+            targetPosSet = new LongOpenHashSet();
+            target.chunkMap.put(chunkPos, targetPosSet);
+            networkIndex.addChunk(chunkPos, target.getNetworkId());
+        }
+
+        targetPosSet.add(blockPos);
+        networkIndex.put(blockPos, target.getNetworkId());
+        target.graph.add(blockPos, connections);
+        target.graphVersion++;
     }
 
-    protected void setClean() {
-        dirty = false;
+    protected void appendPositions(@NotNull N network) {
+        Long2ObjectMap<LongSet> otherChunkMap = ((ServerNetwork<N, O>) network).chunkMap;
+
+        otherChunkMap.long2ObjectEntrySet().forEach((entry) -> {
+            long chunkPos = entry.getLongKey();
+            LongSet blockPosSet = entry.getValue();
+
+            blockPosSet.forEach((long blockPos) -> networkIndex.put(blockPos, getNetworkId()));
+            networkIndex.removeChunk(chunkPos, network.getNetworkId());
+            networkIndex.addChunk(chunkPos, getNetworkId());
+            chunkMap.computeIfAbsent(chunkPos, (k) -> new LongOpenHashSet()).addAll(blockPosSet);
+        });
+        otherChunkMap.clear();
+        graph.addAll(network.graph);
+        network.graph.clear();
+        graphVersion++;
+        network.graphVersion++;
+    }
+
+    protected void updateConnections(@NotNull O blockEntity) {
+        if (graph.contains(blockEntity.getBlockPos().asLong())) {
+            graph.add(blockEntity.getBlockPos(), blockEntity.getValidNeighbors());
+            graphVersion++;
+        }
+    }
+
+    protected boolean canConnect(@NotNull O blockEntity) {
+        return blockEntity.getValidNeighbors().stream().anyMatch(pos -> isValidPosition(blockEntity, pos));
     }
 
     protected void setDirty() {
@@ -134,7 +259,41 @@ public abstract class ServerNetwork<N extends ServerNetwork<N, O>, O extends INe
         return dirty;
     }
 
-    protected Set<ChunkPos> getChunks() {
+    // networks with changed content are synced only when this allows it, structural changes are always synced
+    protected boolean shouldSync(long gameTime) {
+        return dirty;
+    }
+
+    protected void onSynced(long gameTime) {
+        dirty = false;
+    }
+
+    // false when client already has everything, network can be forgotten until next change
+    protected boolean hasPendingSync() {
+        return dirty;
+    }
+
+    protected LongSet getChunks() {
         return chunkMap.keySet();
     }
+
+    public boolean isAnyChunkLoaded(@NotNull ServerLevel level) {
+        ServerChunkCache chunkCache = level.getChunkSource();
+        LongIterator iterator = chunkMap.keySet().iterator();
+
+        while (iterator.hasNext()) {
+            long chunkPos = iterator.nextLong();
+
+            if (chunkCache.hasChunk(ChunkPos.getX(chunkPos), ChunkPos.getZ(chunkPos))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // changes with every graph modification, results computed on older graph snapshot are stale
+    protected int getGraphVersion() {
+        return graphVersion;
+    }
 }
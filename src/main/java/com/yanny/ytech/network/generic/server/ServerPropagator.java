@@ -5,10 +5,14 @@ import com.yanny.ytech.YTechMod;
 import com.yanny.ytech.network.generic.NetworkUtils;
 import com.yanny.ytech.network.generic.common.INetworkBlockEntity;
 import com.yanny.ytech.network.generic.common.NetworkFactory;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.ints.IntSets;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ChunkTrackingView;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraft.world.level.saveddata.SavedData;
 import org.jetbrains.annotations.NotNull;
@@ -16,20 +20,30 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public class ServerPropagator<N extends ServerNetwork<N, O>, O extends INetworkBlockEntity> {
     private static final Logger LOGGER = LogUtils.getLogger();
 
     @NotNull private final HashMap<ResourceLocation, ServerLevelData<N, O>> levelMap = new HashMap<>();
     @NotNull private final NetworkFactory<N, O> networkFactory;
+    @NotNull private final NetworkGraphEngine graphEngine;
     @NotNull private final String networkName;
+    private int typeId = -1;
 
-    public ServerPropagator(@NotNull NetworkFactory<N, O> networkFactory, @NotNull String networkName) {
+    public ServerPropagator(@NotNull NetworkFactory<N, O> networkFactory, @NotNull NetworkGraphEngine graphEngine, @NotNull String networkName) {
         this.networkFactory = networkFactory;
+        this.graphEngine = graphEngine;
         this.networkName = networkName;
     }
 
+    // called by registry, chunk index of level is shared with other network types
+    public void bind(int typeId) {
+        this.typeId = typeId;
+    }
+
     public void add(@NotNull O blockEntity) {
         if (blockEntity.getLevel() instanceof ServerLevel level) {
             levelMap.get(NetworkUtils.getLevelId(level)).add(blockEntity);
@@ -56,11 +70,12 @@ public class ServerPropagator<N extends ServerNetwork<N, O>, O extends INetworkB
 
     public void onLevelLoad(@NotNull ServerLevel level) {
         ResourceLocation id = NetworkUtils.getLevelId(level);
+        NetworkIndex networkIndex = new NetworkIndex(YTechMod.NETWORK_REGISTRY.getChunkIndex(id), typeId);
 
         LOGGER.debug("[{}][onLevelLoad] Preparing propagators for {}", networkName, id);
         levelMap.put(id, level.getDataStorage().computeIfAbsent(new SavedData.Factory<>(
-                () -> new ServerLevelData<>(id, level.getServer(), networkFactory, networkName),
-                (tag, provider) -> new ServerLevelData<>(tag, id, level.getServer(), networkFactory, networkName, provider)
+                () -> new ServerLevelData<>(id, level.getServer(), networkFactory, graphEngine, networkIndex, networkName),
+                (tag, provider) -> new ServerLevelData<>(tag, id, level.getServer(), networkFactory, graphEngine, networkIndex, networkName, provider)
         ), YTechMod.MOD_ID + "_" + networkName));
         LOGGER.debug("[{}][onLevelLoad] Prepared propagators for {}", networkName, id);
     }
@@ -75,8 +90,23 @@ public class ServerPropagator<N extends ServerNetwork<N, O>, O extends INetworkB
 
     public void onPlayerLogIn(@NotNull Player player) {
         if (player instanceof ServerPlayer serverPlayer) {
+            ServerLevelData<N, O> serverLevelData = levelMap.get(NetworkUtils.getLevelId(serverPlayer.level()));
+            Map<Integer, N> networks = new HashMap<>();
+
             LOGGER.debug("[{}][onPlayerLogIn] Connecting player {}", networkName, serverPlayer);
-            networkFactory.sendLevelSync(serverPlayer, levelMap.get(NetworkUtils.getLevelId(serverPlayer.level())).getNetworks());
+
+            // only networks in already watched chunks, rest is sent when chunk is watched
+            if (serverLevelData != null) {
+                serverPlayer.getChunkTrackingView().forEach((chunkPos) -> serverLevelData.getNetworkIds(chunkPos).forEach((int networkId) -> {
+                    N network = serverLevelData.getNetworks().get(networkId);
+
+                    if (network != null) {
+                        networks.put(networkId, network);
+                    }
+                }));
+            }
+
+            networkFactory.sendLevelSync(serverPlayer, networks);
         }
     }
 
@@ -109,11 +139,25 @@ public class ServerPropagator<N extends ServerNetwork<N, O>, O extends INetworkB
         }
     }
 
+    @NotNull
+    public IntSet getNetworkIds(@NotNull ServerLevel level, @NotNull ChunkPos chunkPos) {
+        ServerLevelData<N, O> serverLevelData = levelMap.get(NetworkUtils.getLevelId(level));
+        return serverLevelData != null ? serverLevelData.getNetworkIds(chunkPos) : IntSets.EMPTY_SET;
+    }
+
+    public void applyPendingSplits(@NotNull ServerLevel level) {
+        ServerLevelData<N, O> serverLevelData = levelMap.get(NetworkUtils.getLevelId(level));
+
+        if (serverLevelData != null) {
+            serverLevelData.applyPendingSplits(level);
+        }
+    }
+
     public void tick(@NotNull ServerLevel level) {
         ServerLevelData<N, O> serverLevelData = levelMap.get(NetworkUtils.getLevelId(level));
 
         if (serverLevelData != null) {
-            serverLevelData.tick(level.getChunkSource());
+            serverLevelData.tick(level);
         } else {
             LOGGER.warn("[{}][tick] No networks defined for level {}", networkName, level);
         }
@@ -123,11 +167,39 @@ public class ServerPropagator<N extends ServerNetwork<N, O>, O extends INetworkB
         ServerLevelData<N, O> serverLevelData = levelMap.get(NetworkUtils.getLevelId(level));
 
         if (serverLevelData != null) {
-            serverLevelData.getNetworks().values().stream()
-                    .filter((network) -> network.getChunks().contains(chunk.getPos()))
-                    .forEach((network) -> networkFactory.sendUpdated(player, network));
+            Map<Integer, N> networks = serverLevelData.getNetworks();
+            List<N> watched = serverLevelData.getNetworkIds(chunk.getPos()).intStream().mapToObj(networks::get).filter(Objects::nonNull).toList();
+
+            if (!watched.isEmpty()) {
+                networkFactory.sendUpdated(player, watched);
+            }
         } else {
             LOGGER.warn("[{}][onChunkWatch] No networks defined for level {}", networkName, level);
         }
     }
+
+    public void onChunkUnWatch(@NotNull ServerLevel level, @NotNull ServerPlayer player, @NotNull ChunkPos chunkPos) {
+        ServerLevelData<N, O> serverLevelData = levelMap.get(NetworkUtils.getLevelId(level));
+
+        // player already left level, client have new level data
+        if (player.level() != level) {
+            return;
+        }
+
+        if (serverLevelData != null) {
+            Map<Integer, N> networks = serverLevelData.getNetworks();
+            ChunkTrackingView trackingView = player.getChunkTrackingView();
+
+            serverLevelData.getNetworkIds(chunkPos).forEach((int networkId) -> {
+                N network = networks.get(networkId);
+
+                // evict network from client when it left all watched chunks
+                if (network != null && network.getChunks().longStream().noneMatch((pos) -> pos != chunkPos.toLong() && trackingView.contains(ChunkPos.getX(pos), ChunkPos.getZ(pos)))) {
+                    networkFactory.sendRemoved(player, networkId);
+                }
+            });
+        } else {
+            LOGGER.warn("[{}][onChunkUnWatch] No networks defined for level {}", networkName, level);
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package com.yanny.ytech.network.irrigation;
+
+import net.minecraft.server.level.ServerLevel;
+import org.jetbrains.annotations.NotNull;
+
+// consumers are served by their network, all due consumers of network at once
+public interface IIrrigationConsumer extends IIrrigationBlockEntity {
+    // requested amount of water, 0 when consumer is not due yet
+    int getDemand(@NotNull ServerLevel level, int elapsedTicks);
+    void onServed(@NotNull ServerLevel level, boolean served);
+}
@@ -0,0 +1,207 @@
+package com.yanny.ytech.network.irrigation;
+
+import com.yanny.ytech.network.generic.server.NetworkGraph;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.jetbrains.annotations.NotNull;
+
+// water level of every storage segment, water enters at providers and rain filled segments and spreads along graph
+// only segments out of balance with neighbors are relaxed, and only when network is evaluated
+class IrrigationFlowModel {
+    // long idle networks are considered settled
+    private static final int MAX_STEPS_PER_EVALUATION = 64;
+    private static final long NOT_EVALUATED = -1;
+
+    @NotNull private final Long2IntOpenHashMap amounts = new Long2IntOpenHashMap();
+    @NotNull private LongOpenHashSet active = new LongOpenHashSet();
+    private long evaluatedTime = NOT_EVALUATED;
+    private int total = 0;
+
+    void addSegment(long pos) {
+        amounts.putIfAbsent(pos, 0);
+        active.add(pos);
+    }
+
+    int removeSegment(long pos) {
+        int amount = amounts.remove(pos);
+
+        active.remove(pos);
+        total -= amount;
+        return amount;
+    }
+
+    void append(@NotNull IrrigationFlowModel model) {
+        for (Long2IntMap.Entry entry : model.amounts.long2IntEntrySet()) {
+            amounts.addTo(entry.getLongKey(), entry.getIntValue());
+            active.add(entry.getLongKey());
+        }
+
+        total += model.total;
+    }
+
+    int getAmount(long pos) {
+        return amounts.get(pos);
+    }
+
+    void setAmount(long pos, int amount) {
+        if (amounts.containsKey(pos)) {
+            total += amount - amounts.put(pos, amount);
+            active.add(pos);
+        }
+    }
+
+    int getTotal() {
+        return total;
+    }
+
+    // returns accepted amount
+    int fill(long pos, int amount, int segmentCapacity) {
+        if (!amounts.containsKey(pos)) {
+            return 0;
+        }
+
+        int accepted = Math.max(0, Math.min(amount, segmentCapacity - amounts.get(pos)));
+
+        if (accepted > 0) {
+            amounts.addTo(pos, accepted);
+            active.add(pos);
+            total += accepted;
+        }
+
+        return accepted;
+    }
+
+    // drains only from segments connected to pos, nothing is drained when they don't hold enough water
+    boolean drainAround(@NotNull NetworkGraph graph, long pos, int amount) {
+        LongList sources = new LongArrayList();
+        int[] available = {0};
+
+        graph.forEachConnected(pos, (neighbor) -> {
+            if (amounts.containsKey(neighbor)) {
+                sources.add(neighbor);
+                available[0] += amounts.get(neighbor);
+            }
+        });
+
+        if (available[0] < amount) {
+            return false;
+        }
+
+        int remaining = amount;
+
+        for (int i = 0; i < sources.size() && remaining > 0; i++) {
+            long source = sources.getLong(i);
+            int drained = Math.min(remaining, amounts.get(source));
+
+            amounts.addTo(source, -drained);
+            active.add(source);
+            remaining -= drained;
+        }
+
+        total -= amount;
+        return true;
+    }
+
+    // network tank was changed outside of model (bucket, fluid capability, catch up), only the difference is spread
+    // evenly over segments that can take it, so existing gradient is kept
+    void reconcile(int amount, int segmentCapacity) {
+        int difference = amount - total;
+
+        while (difference != 0) {
+            int open = 0;
+
+            for (Long2IntMap.Entry entry : amounts.long2IntEntrySet()) {
+                if (difference > 0 ? entry.getIntValue() < segmentCapacity : entry.getIntValue() > 0) {
+                    open++;
+                }
+            }
+
+            if (open == 0) {
+                break;
+            }
+
+            int share = difference / open != 0 ? difference / open : Integer.signum(difference);
+
+            for (Long2IntMap.Entry entry : amounts.long2IntEntrySet()) {
+                int value = entry.getIntValue();
+                int change = difference > 0
+                        ? Math.min(Math.min(share, difference), Math.max(0, segmentCapacity - value))
+                        : Math.max(Math.max(share, difference), -value);
+
+                if (change != 0) {
+                    entry.setValue(value + change);
+                    active.add(entry.getLongKey());
+                    difference -= change;
+                    total += change;
+
+                    if (difference == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    void evaluate(@NotNull NetworkGraph graph, long gameTime, int flowPerNthTick) {
+        if (evaluatedTime == NOT_EVALUATED) {
+            evaluatedTime = gameTime;
+            return;
+        }
+
+        long steps = (gameTime - evaluatedTime) / flowPerNthTick;
+
+        evaluatedTime += steps * flowPerNthTick;
+
+        if (steps > MAX_STEPS_PER_EVALUATION) {
+            equalize(total);
+            return;
+        }
+
+        for (long i = 0; i < steps && !active.isEmpty(); i++) {
+            relax(graph);
+        }
+    }
+
+    private void relax(@NotNull NetworkGraph graph) {
+        LongOpenHashSet changed = new LongOpenHashSet();
+
+        active.forEach((long pos) -> graph.forEachConnected(pos, (neighbor) -> {
+            if (amounts.containsKey(neighbor)) {
+                int difference = amounts.get(pos) - amounts.get(neighbor);
+
+                // difference of single unit is balanced state
+                if (Math.abs(difference) > 1) {
+                    int transfer = Integer.signum(difference) * Math.max(1, Math.abs(difference) / 4);
+
+                    amounts.addTo(pos, -transfer);
+                    amounts.addTo(neighbor, transfer);
+                    changed.add(pos);
+                    changed.add(neighbor);
+                }
+            }
+        }));
+
+        active = changed;
+    }
+
+    private void equalize(int amount) {
+        int count = amounts.size();
+
+        if (count == 0) {
+            return;
+        }
+
+        int share = amount / count;
+        int remainder = amount % count;
+
+        for (Long2IntMap.Entry entry : amounts.long2IntEntrySet()) {
+            entry.setValue(share + (remainder-- > 0 ? 1 : 0));
+        }
+
+        active.clear();
+        total = amount;
+    }
+}
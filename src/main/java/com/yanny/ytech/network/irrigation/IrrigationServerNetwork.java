@@ -3,28 +3,40 @@ package com.yanny.ytech.network.irrigation;
 import com.mojang.logging.LogUtils;
 import com.yanny.ytech.YTechMod;
 import com.yanny.ytech.network.generic.NetworkUtils;
+import com.yanny.ytech.network.generic.server.NetworkIndex;
 import com.yanny.ytech.network.generic.server.ServerNetwork;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
-import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.material.Fluids;
+import net.neoforged.fml.loading.FMLEnvironment;
 import net.neoforged.neoforge.fluids.FluidStack;
 import net.neoforged.neoforge.fluids.capability.IFluidHandler;
 import net.neoforged.neoforge.fluids.capability.templates.FluidTank;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import java.text.MessageFormat;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.IntSupplier;
 
 public class IrrigationServerNetwork extends ServerNetwork<IrrigationServerNetwork, IIrrigationBlockEntity> {
     private static final String TAG_PROVIDERS = "providers";
@@ -33,25 +45,35 @@ public class IrrigationServerNetwork extends ServerNetwork<IrrigationServerNetwo
     private static final String TAG_FILLED_BY_RAIN = "filledByRain";
     private static final String TAG_BLOCK_POS = "pos";
     private static final String TAG_FLOW = "flow";
+    private static final String TAG_FLOWS = "flows";
     private static final String TAG_FLUID_TANK = "fluidHolder";
+    private static final String TAG_SEGMENT_AMOUNTS = "segmentAmounts";
+    private static final int CONSISTENCY_CHECK_PER_NTH_TICK = 1200;
     private static final Logger LOGGER = LogUtils.getLogger();
 
-    @NotNull private final HashMap<BlockPos, Integer> providers = new HashMap<>();
-    @NotNull private final Set<BlockPos> consumers = new HashSet<>();
-    @NotNull private final Set<BlockPos> storages = new HashSet<>();
-    @NotNull private final Set<BlockPos> filledByRain = new HashSet<>();
+    @NotNull private final Long2IntOpenHashMap providers = new Long2IntOpenHashMap();
+    @NotNull private final LongOpenHashSet consumers = new LongOpenHashSet();
+    @NotNull private final LongOpenHashSet storages = new LongOpenHashSet();
+    @NotNull private final LongOpenHashSet filledByRain = new LongOpenHashSet();
     @NotNull private final FluidTank fluidHandler;
+    @Nullable private final IrrigationFlowModel flowModel = YTechMod.CONFIGURATION.useSegmentFlowModel() ? new IrrigationFlowModel() : null;
     private int inflow = 0;
+    private int syncedAmount = -1;
+    private int syncedCapacity = -1;
+    private long syncedTime = 0;
+    private long consistencyCheckTime = 0;
+    private int consumerTurn = 0;
 
     public IrrigationServerNetwork(@NotNull CompoundTag tag, int networkId, @NotNull Consumer<Integer> onChange,
-                                   @NotNull BiConsumer<Integer, ChunkPos> onRemove, HolderLookup.Provider provider) {
-        super(networkId, onChange, onRemove);
+                                   @NotNull BiConsumer<Integer, ChunkPos> onRemove, @NotNull NetworkIndex networkIndex, HolderLookup.Provider provider) {
+        super(networkId, onChange, onRemove, networkIndex);
         fluidHandler = createFluidTank(networkId);
         load(tag, provider);
     }
 
-    public IrrigationServerNetwork(int networkId, @NotNull Consumer<Integer> onChange, @NotNull BiConsumer<Integer, ChunkPos> onRemove) {
-        super(networkId, onChange, onRemove);
+    public IrrigationServerNetwork(int networkId, @NotNull Consumer<Integer> onChange, @NotNull BiConsumer<Integer, ChunkPos> onRemove,
+                                   @NotNull NetworkIndex networkIndex) {
+        super(networkId, onChange, onRemove, networkIndex);
         fluidHandler = createFluidTank(networkId);
     }
 
@@ -75,25 +97,45 @@ public class IrrigationServerNetwork extends ServerNetwork<IrrigationServerNetwo
     protected void load(@NotNull CompoundTag tag, @NotNull HolderLookup.Provider provider) {
         super.load(tag, provider);
 
-        if (tag.contains(TAG_PROVIDERS) && tag.getTagType(TAG_PROVIDERS) != 0) {
-            tag.getList(TAG_PROVIDERS, ListTag.TAG_COMPOUND).forEach((t) ->
-                    providers.put(NetworkUtils.loadBlockPos(((CompoundTag) t).getCompound(TAG_BLOCK_POS)), ((CompoundTag) t).getInt(TAG_FLOW)));
-        }
-        if (tag.contains(TAG_CONSUMERS) && tag.getTagType(TAG_CONSUMERS) != 0) {
-            tag.getList(TAG_CONSUMERS, ListTag.TAG_COMPOUND).forEach((t) -> consumers.add(NetworkUtils.loadBlockPos(((CompoundTag) t).getCompound(TAG_BLOCK_POS))));
-        }
-        if (tag.contains(TAG_STORAGES) && tag.getTagType(TAG_STORAGES) != 0) {
-            tag.getList(TAG_STORAGES, ListTag.TAG_COMPOUND).forEach((t) -> storages.add(NetworkUtils.loadBlockPos(((CompoundTag) t).getCompound(TAG_BLOCK_POS))));
-        }
-        if (tag.contains(TAG_FILLED_BY_RAIN) && tag.getTagType(TAG_FILLED_BY_RAIN) != 0) {
-            tag.getList(TAG_FILLED_BY_RAIN, ListTag.TAG_COMPOUND).forEach((t) -> filledByRain.add(NetworkUtils.loadBlockPos(((CompoundTag) t).getCompound(TAG_BLOCK_POS))));
+        if (tag.contains(TAG_PROVIDERS, Tag.TAG_LONG_ARRAY)) {
+            long[] positions = tag.getLongArray(TAG_PROVIDERS);
+            int[] flows = tag.getIntArray(TAG_FLOWS);
+
+            for (int i = 0; i < positions.length; i++) {
+                int flow = i < flows.length ? flows[i] : 0;
+
+                inflow += flow - providers.put(positions[i], flow);
+            }
+        } else if (tag.contains(TAG_PROVIDERS) && tag.getTagType(TAG_PROVIDERS) != 0) {
+            tag.getList(TAG_PROVIDERS, ListTag.TAG_COMPOUND).forEach((t) -> {
+                int flow = ((CompoundTag) t).getInt(TAG_FLOW);
+                inflow += flow - providers.put(NetworkUtils.loadBlockPos(((CompoundTag) t).getCompound(TAG_BLOCK_POS)).asLong(), flow);
+            });
         }
+
+        loadPositions(tag, TAG_CONSUMERS, consumers);
+        loadPositions(tag, TAG_STORAGES, storages);
+        loadPositions(tag, TAG_FILLED_BY_RAIN, filledByRain);
+
         if (tag.contains(TAG_FLUID_TANK) && tag.getTagType(TAG_FLUID_TANK) != 0) {
             fluidHandler.setCapacity(storages.size() * YTechMod.CONFIGURATION.getBaseFluidStoragePerBlock());
             fluidHandler.readFromNBT(provider, tag.getCompound(TAG_FLUID_TANK));
         }
 
-        inflow = providers.values().stream().mapToInt(Integer::intValue).sum();
+        if (flowModel != null) {
+            long[] positions = tag.getLongArray(TAG_STORAGES);
+            int[] amounts = tag.getIntArray(TAG_SEGMENT_AMOUNTS);
+
+            storages.forEach((long pos) -> flowModel.addSegment(pos));
+
+            // segments stored without flow model are spread evenly on first evaluation
+            if (positions.length == amounts.length) {
+                for (int i = 0; i < positions.length; i++) {
+                    flowModel.setAmount(positions[i], amounts[i]);
+                }
+            }
+        }
+
         LOGGER.debug("Network {}: {}", getNetworkId(), this);
     }
 
@@ -101,84 +143,71 @@ public class IrrigationServerNetwork extends ServerNetwork<IrrigationServerNetwo
     @Override
     protected CompoundTag save(@NotNull HolderLookup.Provider provider) {
         CompoundTag tag = super.save(provider);
-        ListTag providersTag = new ListTag();
-        ListTag consumersTag = new ListTag();
-        ListTag storagesTag = new ListTag();
-        ListTag filledByRainTag = new ListTag();
-
-        providers.forEach((pos, stress) -> {
-            CompoundTag t = new CompoundTag();
-            t.put(TAG_BLOCK_POS, NetworkUtils.saveBlockPos(pos));
-            t.putInt(TAG_FLOW, stress);
-            providersTag.add(t);
-        });
-        consumers.forEach((pos) -> {
-            CompoundTag t = new CompoundTag();
-            t.put(TAG_BLOCK_POS, NetworkUtils.saveBlockPos(pos));
-            consumersTag.add(t);
-        });
-        storages.forEach((pos) -> {
-            CompoundTag t = new CompoundTag();
-            t.put(TAG_BLOCK_POS, NetworkUtils.saveBlockPos(pos));
-            storagesTag.add(t);
-        });
-        filledByRain.forEach((pos) -> {
-            CompoundTag t = new CompoundTag();
-            t.put(TAG_BLOCK_POS, NetworkUtils.saveBlockPos(pos));
-            filledByRainTag.add(t);
-        });
-        tag.put(TAG_PROVIDERS, providersTag);
-        tag.put(TAG_CONSUMERS, consumersTag);
-        tag.put(TAG_STORAGES, storagesTag);
-        tag.put(TAG_FILLED_BY_RAIN, filledByRainTag);
+        long[] providerPositions = new long[providers.size()];
+        int[] providerFlows = new int[providers.size()];
+        long[] storagePositions = storages.toLongArray();
+        int i = 0;
+
+        for (Long2IntMap.Entry entry : providers.long2IntEntrySet()) {
+            providerPositions[i] = entry.getLongKey();
+            providerFlows[i] = entry.getIntValue();
+            i++;
+        }
+
+        tag.putLongArray(TAG_PROVIDERS, providerPositions);
+        tag.putIntArray(TAG_FLOWS, providerFlows);
+        tag.putLongArray(TAG_CONSUMERS, consumers.toLongArray());
+        tag.putLongArray(TAG_STORAGES, storagePositions);
+        tag.putLongArray(TAG_FILLED_BY_RAIN, filledByRain.toLongArray());
         tag.put(TAG_FLUID_TANK, fluidHandler.writeToNBT(provider, new CompoundTag()));
+
+        if (flowModel != null) {
+            int[] segmentAmounts = new int[storagePositions.length];
+
+            for (i = 0; i < storagePositions.length; i++) {
+                segmentAmounts[i] = flowModel.getAmount(storagePositions[i]);
+            }
+
+            tag.putIntArray(TAG_SEGMENT_AMOUNTS, segmentAmounts);
+        }
+
         return tag;
     }
 
     @Override
     protected void appendNetwork(@NotNull IrrigationServerNetwork network, @NotNull Level level) {
-        network.providers.forEach((pos, value) -> {
-            providers.put(pos, value);
+        providers.putAll(network.providers);
+        consumers.addAll(network.consumers);
+        storages.addAll(network.storages);
+        filledByRain.addAll(network.filledByRain);
+        appendPositions(network);
 
-            if (level.getBlockEntity(pos) instanceof IIrrigationBlockEntity irrigationBlockEntity) {
-                addBlockEntity(irrigationBlockEntity);
-            }
-        });
-        network.consumers.forEach((pos) -> {
-            consumers.add(pos);
+        network.providers.keySet().forEach((long pos) -> updateNetworkId(pos, level));
+        network.consumers.forEach((long pos) -> updateNetworkId(pos, level));
+        network.storages.forEach((long pos) -> updateNetworkId(pos, level));
 
-            if (level.getBlockEntity(pos) instanceof IIrrigationBlockEntity irrigationBlockEntity) {
-                addBlockEntity(irrigationBlockEntity);
-            }
-        });
-        network.storages.forEach((pos) -> {
-            storages.add(pos);
+        inflow += network.inflow;
 
-            if (level.getBlockEntity(pos) instanceof IIrrigationBlockEntity irrigationBlockEntity) {
-                addBlockEntity(irrigationBlockEntity);
-            }
-        });
-        filledByRain.addAll(network.filledByRain);
+        if (flowModel != null && network.flowModel != null) {
+            flowModel.append(network.flowModel);
+        }
 
-        inflow += network.inflow;
-        fluidHandler.setCapacity(fluidHandler.getCapacity() + network.fluidHandler.getCapacity());
+        fluidHandler.setCapacity(YTechMod.CONFIGURATION.getBaseFluidStoragePerBlock() * storages.size());
         fluidHandler.setFluid(new FluidStack(Fluids.WATER, fluidHandler.getFluidAmount() + network.fluidHandler.getFluidAmount()));
     }
 
     @Override
     protected boolean updateBlockEntity(@NotNull IIrrigationBlockEntity blockEntity) {
-        BlockPos blockPos = blockEntity.getBlockPos();
+        long blockPos = blockEntity.getBlockPos().asLong();
         boolean wasChange = false;
 
         switch (blockEntity.getNetworkType()) {
             case PROVIDER -> {
-                int oldCapacity = inflow;
                 int value = blockEntity.getFlow();
+                int oldValue = providers.put(blockPos, value);
 
-                providers.put(blockPos, value);
-                inflow = providers.values().stream().mapToInt(Integer::intValue).sum();
-
-                if (oldCapacity != inflow) {
+                if (oldValue != value) {
+                    inflow += value - oldValue;
                     wasChange = true;
                 }
             }
@@ -202,53 +231,46 @@ public class IrrigationServerNetwork extends ServerNetwork<IrrigationServerNetwo
         return wasChange;
     }
 
-    @NotNull
     @Override
-    protected List<IrrigationServerNetwork> removeBlockEntity(@NotNull Function<Integer, List<Integer>> idsGetter, @NotNull BiConsumer<Integer, ChunkPos> onRemove,
-                                                              @NotNull IIrrigationBlockEntity blockEntity) {
-        Level level = blockEntity.getLevel();
-        Map<BlockPos, Integer> providerBlocks = new HashMap<>(providers);
-        Set<BlockPos> consumerBlocks = new HashSet<>(consumers);
-        Set<BlockPos> storageBlocks = new HashSet<>(storages);
-        Set<BlockPos> filledByRainBlocks = new HashSet<>(filledByRain);
-        BlockPos blockPos = blockEntity.getBlockPos();
-        double fluidPerBlock = storageBlockCount() > 0 ? fluidHandler.getFluidAmount() / (double)storageBlockCount() : 0;
-
-        // remove splitting block
-        providerBlocks.remove(blockPos);
-        consumerBlocks.remove(blockPos);
-        storageBlocks.remove(blockPos);
-        filledByRainBlocks.remove(blockPos);
+    protected void detachBlockEntity(@NotNull IIrrigationBlockEntity blockEntity) {
+        double fluidPerBlock = getFluidPerBlock();
+
+        if (flowModel != null) {
+            flowModel.reconcile(fluidHandler.getFluidAmount(), YTechMod.CONFIGURATION.getBaseFluidStoragePerBlock());
+        }
+
         removeBlockEntity(blockEntity);
+        fluidHandler.setFluid(new FluidStack(Fluids.WATER, flowModel != null ? flowModel.getTotal() : (int) (storageBlockCount() * fluidPerBlock)));
+    }
 
-        List<BlockPos> neighbors = blockEntity.getValidNeighbors().stream().filter(pos -> providerBlocks.containsKey(pos) || consumerBlocks.contains(pos) || storageBlocks.contains(pos)).collect(Collectors.toList());
+    @NotNull
+    @Override
+    protected List<IrrigationServerNetwork> split(@NotNull IntSupplier idGetter, @NotNull BiConsumer<Integer, ChunkPos> onRemove,
+                                                  @NotNull LongList detachedSeeds, @NotNull Level level) {
+        double fluidPerBlock = getFluidPerBlock();
+        List<IrrigationServerNetwork> networks = new ArrayList<>(detachedSeeds.size());
 
-        if ((neighbors.size() == 1) || (providerBlocks.isEmpty() && consumerBlocks.isEmpty() && storageBlocks.isEmpty()) || level == null) { // if we are not splitting
-            fluidHandler.setFluid(new FluidStack(Fluids.WATER, (int) (storageBlockCount() * fluidPerBlock)));
-            return List.of();
+        if (flowModel != null) {
+            flowModel.reconcile(fluidHandler.getFluidAmount(), YTechMod.CONFIGURATION.getBaseFluidStoragePerBlock());
         }
 
-        List<Integer> ids = idsGetter.apply(neighbors.size() - 1);
-        BlockPos neighbor = neighbors.remove(0); // remove first network (will be our network)
+        detachedSeeds.forEach((long seed) -> {
+            IrrigationServerNetwork network = new IrrigationServerNetwork(idGetter.getAsInt(), onChange, onRemove, networkIndex);
+            LongList moved = insertConnectedPositions(this, network, seed);
 
-        clear();
-        insertConnectedPositions(this, providerBlocks, consumerBlocks, storageBlocks, filledByRainBlocks, neighbor, level); // re-insert blocks
-        fluidHandler.setFluid(new FluidStack(Fluids.WATER, (int) (storageBlockCount() * fluidPerBlock)));
+            moved.forEach((long pos) -> network.updateNetworkId(pos, level));
+            network.fluidHandler.setCapacity(YTechMod.CONFIGURATION.getBaseFluidStoragePerBlock() * network.storages.size());
+            network.fluidHandler.setFluid(new FluidStack(Fluids.WATER, network.flowModel != null
+                    ? network.flowModel.getTotal() : (int) (network.storageBlockCount() * fluidPerBlock)));
+            networks.add(network);
+        });
 
-        return neighbors.stream()
-                .map((pos) -> {
-                    if ((providerBlocks.isEmpty() && consumerBlocks.isEmpty() && storageBlocks.isEmpty())
-                            || (!providerBlocks.containsKey(pos) && !consumerBlocks.contains(pos) && !storageBlocks.contains(pos))) {
-                        return null;
-                    }
+        if (!networks.isEmpty()) {
+            fluidHandler.setCapacity(YTechMod.CONFIGURATION.getBaseFluidStoragePerBlock() * storages.size());
+            fluidHandler.setFluid(new FluidStack(Fluids.WATER, flowModel != null ? flowModel.getTotal() : (int) (storageBlockCount() * fluidPerBlock)));
+        }
 
-                    IrrigationServerNetwork network = new IrrigationServerNetwork(ids.remove(0), onChange, onRemove);
-                    insertConnectedPositions(network, providerBlocks, consumerBlocks, storageBlocks, filledByRainBlocks, pos, level);
-                    return network;
-                })
-                .filter(Objects::nonNull)
-                .peek((n) -> n.fluidHandler.setFluid(new FluidStack(Fluids.WATER, (int) (n.storageBlockCount() * fluidPerBlock))))
-                .toList();
+        return networks;
     }
 
     @Override
@@ -258,7 +280,7 @@ public class IrrigationServerNetwork extends ServerNetwork<IrrigationServerNetwo
 
     @Override
     protected boolean isValidPosition(@NotNull IIrrigationBlockEntity blockEntity, @NotNull BlockPos pos) {
-        if (providers.containsKey(pos) || consumers.contains(pos) || storages.contains(pos)) {
+        if (providers.containsKey(pos.asLong()) || consumers.contains(pos.asLong()) || storages.contains(pos.asLong())) {
             Level level = blockEntity.getLevel();
 
             if (level != null && level.isLoaded(pos)) {
@@ -282,7 +304,7 @@ public class IrrigationServerNetwork extends ServerNetwork<IrrigationServerNetwo
         }
 
         if (blockEntity.validForRainFilling()) {
-            filledByRain.add(blockEntity.getBlockPos());
+            filledByRain.add(blockEntity.getBlockPos().asLong());
         }
     }
 
@@ -294,20 +316,31 @@ public class IrrigationServerNetwork extends ServerNetwork<IrrigationServerNetwo
             case STORAGE -> removeStorage(blockEntity);
         }
 
-        filledByRain.remove(blockEntity.getBlockPos());
+        filledByRain.remove(blockEntity.getBlockPos().asLong());
         super.removeBlockEntity(blockEntity);
     }
 
     public void tick(@NotNull ServerLevel level) {
+        boolean rainFill = YTechMod.CONFIGURATION.shouldRainingFillAqueduct() && level.isRaining() && level.getGameTime() % YTechMod.CONFIGURATION.getRainingFillPerNthTick() == 0;
+        boolean valveFill = level.getGameTime() % YTechMod.CONFIGURATION.getValveFillPerNthTick() == 0;
         int amount = 0;
 
-        // rain filling
-        if (YTechMod.CONFIGURATION.shouldRainingFillAqueduct() && level.isRaining() && level.getGameTime() % YTechMod.CONFIGURATION.getRainingFillPerNthTick() == 0) {
-            amount += YTechMod.CONFIGURATION.getRainingFillAmount() * filledByRainCount();
+        if (flowModel != null) {
+            evaluateFlow(level.getGameTime());
+            amount = fillSegments(flowModel, rainFill, valveFill);
+        } else {
+            if (rainFill) {
+                amount += YTechMod.CONFIGURATION.getRainingFillAmount() * filledByRainCount();
+            }
+
+            if (valveFill) {
+                amount += inflow;
+            }
         }
 
-        if (level.getGameTime() % YTechMod.CONFIGURATION.getValveFillPerNthTick() == 0) {
-            amount += inflow;
+        if (!FMLEnvironment.production && level.getGameTime() - consistencyCheckTime >= CONSISTENCY_CHECK_PER_NTH_TICK) {
+            consistencyCheckTime = level.getGameTime();
+            checkConsistency();
         }
 
         if (amount > 0 && fluidHandler.getFluidAmount() < fluidHandler.getCapacity()) {
@@ -315,11 +348,126 @@ public class IrrigationServerNetwork extends ServerNetwork<IrrigationServerNetwo
         }
     }
 
+    @Override
+    protected boolean shouldSync(long gameTime) {
+        int amount = fluidHandler.getFluidAmount();
+        int capacity = fluidHandler.getCapacity();
+
+        if (isDirty() || capacity != syncedCapacity) {
+            return true;
+        }
+        if (amount == syncedAmount) {
+            return false;
+        }
+        if (amount == 0 || amount == capacity) {
+            return true;
+        }
+
+        return getFillStep(amount, capacity) != getFillStep(syncedAmount, capacity) || gameTime - syncedTime >= YTechMod.CONFIGURATION.getSyncMaxInterval();
+    }
+
+    @Override
+    protected void onSynced(long gameTime) {
+        super.onSynced(gameTime);
+        syncedAmount = fluidHandler.getFluidAmount();
+        syncedCapacity = fluidHandler.getCapacity();
+        syncedTime = gameTime;
+    }
+
+    @Override
+    protected boolean hasPendingSync() {
+        return isDirty() || fluidHandler.getFluidAmount() != syncedAmount || fluidHandler.getCapacity() != syncedCapacity;
+    }
+
     @NotNull
     public FluidTank getFluidHandler() {
         return fluidHandler;
     }
 
+    // fills missed while network was hibernated, at most up to capacity
+    public void catchUp(long valveFills, long rainFills) {
+        long amount = valveFills * inflow;
+        int space = fluidHandler.getCapacity() - fluidHandler.getFluidAmount();
+
+        if (YTechMod.CONFIGURATION.shouldRainingFillAqueduct()) {
+            amount += rainFills * YTechMod.CONFIGURATION.getRainingFillAmount() * filledByRainCount();
+        }
+
+        if (amount > 0 && space > 0) {
+            fluidHandler.fill(new FluidStack(Fluids.WATER, (int) Math.min(amount, space)), IFluidHandler.FluidAction.EXECUTE);
+        }
+    }
+
+    // demand of all due consumers is drained at once, when water is short consumers are served in turns
+    // with flow model consumer takes water only from connected segments
+    public void serveConsumers(@NotNull ServerLevel level, int elapsedTicks) {
+        List<IIrrigationConsumer> due = new ArrayList<>();
+        IntList demands = new IntArrayList();
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        LongIterator iterator = consumers.iterator();
+        int totalDemand = 0;
+
+        while (iterator.hasNext()) {
+            pos.set(iterator.nextLong());
+
+            if (level.shouldTickBlocksAt(pos) && level.getBlockEntity(pos) instanceof IIrrigationConsumer consumer) {
+                int demand = consumer.getDemand(level, elapsedTicks);
+
+                if (demand > 0) {
+                    due.add(consumer);
+                    demands.add(demand);
+                    totalDemand += demand;
+                }
+            }
+        }
+
+        if (due.isEmpty()) {
+            return;
+        }
+
+        boolean[] served = new boolean[due.size()];
+        int available = fluidHandler.getFluidAmount();
+        int drained = 0;
+        int servedCount = 0;
+
+        if (flowModel != null) {
+            evaluateFlow(level.getGameTime());
+        }
+
+        for (int n = 0; n < due.size(); n++) {
+            int i = (consumerTurn + n) % due.size();
+            int demand = demands.getInt(i);
+
+            if (flowModel != null ? flowModel.drainAround(graph, due.get(i).getBlockPos().asLong(), demand) : demand <= available) {
+                available -= demand;
+                drained += demand;
+                served[i] = true;
+                servedCount++;
+            }
+        }
+
+        // starving consumers are first in next turn
+        if (drained < totalDemand) {
+            consumerTurn = (consumerTurn + servedCount) % due.size();
+        }
+
+        if (drained > 0) {
+            fluidHandler.drain(new FluidStack(Fluids.WATER, drained), IFluidHandler.FluidAction.EXECUTE);
+        }
+
+        for (int i = 0; i < due.size(); i++) {
+            due.get(i).onServed(level, served[i]);
+        }
+    }
+
+    public boolean hasConsumers() {
+        return !consumers.isEmpty();
+    }
+
+    public int getInflow() {
+        return inflow;
+    }
+
     public int storageBlockCount() {
         return storages.size();
     }
@@ -329,51 +477,117 @@ public class IrrigationServerNetwork extends ServerNetwork<IrrigationServerNetwo
     }
 
     private void addProvider(@NotNull IIrrigationBlockEntity entity) {
-        BlockPos blockPos = entity.getBlockPos();
         int flow = entity.getFlow();
 
-        providers.put(blockPos, flow);
-        inflow += flow;
+        inflow += flow - providers.put(entity.getBlockPos().asLong(), flow);
     }
 
     private void addConsumer(@NotNull IIrrigationBlockEntity entity) {
-        BlockPos blockPos = entity.getBlockPos();
-        consumers.add(blockPos);
+        consumers.add(entity.getBlockPos().asLong());
     }
 
     private void addStorage(@NotNull IIrrigationBlockEntity entity) {
-        BlockPos blockPos = entity.getBlockPos();
+        storages.add(entity.getBlockPos().asLong());
+
+        if (flowModel != null) {
+            flowModel.addSegment(entity.getBlockPos().asLong());
+        }
 
-        storages.add(blockPos);
         fluidHandler.setCapacity(YTechMod.CONFIGURATION.getBaseFluidStoragePerBlock() * storages.size());
     }
 
     private void removeProvider(@NotNull IIrrigationBlockEntity entity) {
-        BlockPos blockPos = entity.getBlockPos();
-        int value = providers.remove(blockPos);
+        int value = providers.remove(entity.getBlockPos().asLong());
 
         inflow -= value;
     }
 
     private void removeConsumer(@NotNull IIrrigationBlockEntity entity) {
-        BlockPos blockPos = entity.getBlockPos();
-        consumers.remove(blockPos);
+        consumers.remove(entity.getBlockPos().asLong());
     }
 
     private void removeStorage(@NotNull IIrrigationBlockEntity entity) {
-        BlockPos blockPos = entity.getBlockPos();
+        storages.remove(entity.getBlockPos().asLong());
+
+        if (flowModel != null) {
+            flowModel.removeSegment(entity.getBlockPos().asLong());
+        }
 
-        storages.remove(blockPos);
         fluidHandler.setCapacity(YTechMod.CONFIGURATION.getBaseFluidStoragePerBlock() * storages.size());
     }
 
-    private void clear() {
-        consumers.clear();
-        providers.clear();
-        storages.clear();
-        filledByRain.clear();
-        inflow = 0;
-        fluidHandler.setCapacity(0);
+    private double getFluidPerBlock() {
+        return storageBlockCount() > 0 ? fluidHandler.getFluidAmount() / (double) storageBlockCount() : 0;
+    }
+
+    private void evaluateFlow(long gameTime) {
+        if (flowModel != null) {
+            flowModel.reconcile(fluidHandler.getFluidAmount(), YTechMod.CONFIGURATION.getBaseFluidStoragePerBlock());
+            flowModel.evaluate(graph, gameTime, YTechMod.CONFIGURATION.getFlowPerNthTick());
+        }
+    }
+
+    // valve flow enters connected segments, rain fills exposed segments, full segments don't accept more water
+    private int fillSegments(@NotNull IrrigationFlowModel model, boolean rainFill, boolean valveFill) {
+        int segmentCapacity = YTechMod.CONFIGURATION.getBaseFluidStoragePerBlock();
+        int amount = 0;
+
+        if (rainFill) {
+            LongIterator iterator = filledByRain.iterator();
+
+            while (iterator.hasNext()) {
+                amount += model.fill(iterator.nextLong(), YTechMod.CONFIGURATION.getRainingFillAmount(), segmentCapacity);
+            }
+        }
+
+        if (valveFill) {
+            for (Long2IntMap.Entry entry : providers.long2IntEntrySet()) {
+                LongList targets = new LongArrayList();
+
+                graph.forEachConnected(entry.getLongKey(), (pos) -> {
+                    if (storages.contains(pos)) {
+                        targets.add(pos);
+                    }
+                });
+
+                for (int i = 0; i < targets.size(); i++) {
+                    int flow = entry.getIntValue() / targets.size() + (i < entry.getIntValue() % targets.size() ? 1 : 0);
+
+                    amount += model.fill(targets.getLong(i), flow, segmentCapacity);
+                }
+            }
+        }
+
+        return amount;
+    }
+
+    // development only, validates incrementally updated values
+    private void checkConsistency() {
+        int expectedInflow = providers.values().intStream().sum();
+
+        if (expectedInflow != inflow) {
+            LOGGER.warn("Network {}: inflow drift detected, expected {} but was {}", getNetworkId(), expectedInflow, inflow);
+            inflow = expectedInflow;
+        }
+    }
+
+    private static void loadPositions(@NotNull CompoundTag tag, @NotNull String key, @NotNull LongSet positions) {
+        if (tag.contains(key, Tag.TAG_LONG_ARRAY)) {
+            positions.addAll(LongArrayList.wrap(tag.getLongArray(key)));
+        } else if (tag.contains(key) && tag.getTagType(key) != 0) {
+            // older saves stored every position as compound
+            tag.getList(key, ListTag.TAG_COMPOUND).forEach((t) -> positions.add(NetworkUtils.loadBlockPos(((CompoundTag) t).getCompound(TAG_BLOCK_POS)).asLong()));
+        }
+    }
+
+    private static int getFillStep(int amount, int capacity) {
+        return (int) (amount / (double) capacity / YTechMod.CONFIGURATION.getSyncFillStep());
+    }
+
+    private void updateNetworkId(long pos, @NotNull Level level) {
+        if (level.getBlockEntity(BlockPos.of(pos)) instanceof IIrrigationBlockEntity irrigationBlockEntity) {
+            irrigationBlockEntity.setNetworkId(getNetworkId());
+        }
     }
 
     private FluidTank createFluidTank(int networkId) {
@@ -385,22 +599,62 @@ public class IrrigationServerNetwork extends ServerNetwork<IrrigationServerNetwo
         };
     }
 
-    private static void insertConnectedPositions(@NotNull IrrigationServerNetwork network, @NotNull Map<BlockPos, Integer> providerBlocks,
-                                                 @NotNull Set<BlockPos> consumerBlocks, @NotNull Set<BlockPos> storageBlocks,
-                                                 @NotNull Set<BlockPos> filledByRainBlocks, @NotNull BlockPos from, @NotNull Level level) {
-        BlockEntity blockEntity = level.getBlockEntity(from);
-
-        if (blockEntity instanceof IIrrigationBlockEntity block) {
-            network.addBlockEntity(block);
-            providerBlocks.remove(from);
-            consumerBlocks.remove(from);
-            storageBlocks.remove(from);
-            filledByRainBlocks.remove(from);
-            block.getValidNeighbors().forEach((pos) -> {
-                if (providerBlocks.containsKey(pos) || consumerBlocks.contains(pos) || storageBlocks.contains(pos)) {
-                    insertConnectedPositions(network, providerBlocks, consumerBlocks, storageBlocks, filledByRainBlocks, pos, level);
-                }
-            });
+    // moves members reachable from given position, only graph is traversed and block entities are left untouched
+    @NotNull
+    private static LongList insertConnectedPositions(@NotNull IrrigationServerNetwork source, @NotNull IrrigationServerNetwork target, long from) {
+        LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+        LongOpenHashSet visited = new LongOpenHashSet();
+        LongList moved = new LongArrayList();
+
+        queue.enqueue(from);
+        visited.add(from);
+
+        // iterative flood fill, long aqueducts would overflow stack with recursion
+        while (!queue.isEmpty()) {
+            long current = queue.dequeueLong();
+
+            if (source.graph.contains(current)) {
+                source.graph.forEachConnected(current, (next) -> {
+                    if (visited.add(next)) {
+                        queue.enqueue(next);
+                    }
+                });
+                source.moveMember(current, target);
+                moved.add(current);
+            }
+        }
+
+        return moved;
+    }
+
+    private void moveMember(long pos, @NotNull IrrigationServerNetwork target) {
+        if (providers.containsKey(pos)) {
+            int flow = providers.remove(pos);
+
+            inflow -= flow;
+            target.inflow += flow - target.providers.put(pos, flow);
         }
+
+        if (consumers.remove(pos)) {
+            target.consumers.add(pos);
+        }
+
+        if (storages.remove(pos)) {
+            target.storages.add(pos);
+
+            // segment keeps its water when moved to detached network
+            if (flowModel != null && target.flowModel != null) {
+                int amount = flowModel.removeSegment(pos);
+
+                target.flowModel.addSegment(pos);
+                target.flowModel.setAmount(pos, amount);
+            }
+        }
+
+        if (filledByRain.remove(pos)) {
+            target.filledByRain.add(pos);
+        }
+
+        movePosition(pos, target);
     }
 }
@@ -0,0 +1,260 @@
+package com.yanny.ytech.network.irrigation;
+
+import com.yanny.ytech.YTechMod;
+import com.yanny.ytech.network.generic.NetworkUtils;
+import com.yanny.ytech.network.generic.server.IServerLevelListener;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// time wheel of irrigation networks, network is woken only on its next fill tick
+// full networks or networks without inflow are not scheduled until changed
+// consumers of all networks are served together every second, networks without consumers are skipped
+// networks without loaded chunk hibernate and are caught up when any of their chunks is loaded again
+public class IrrigationTickScheduler implements IServerLevelListener {
+    private static final int WHEEL_SIZE = 256;
+    private static final long NOT_SCHEDULED = -1;
+    private static final int CONSUMERS_PER_NTH_TICK = 20;
+
+    @NotNull private final Map<ResourceLocation, LevelData> levelMap = new HashMap<>();
+
+    public void wake(@NotNull ResourceLocation levelId, @NotNull IrrigationServerNetwork network) {
+        LevelData levelData = levelMap.get(levelId);
+
+        // not yet ticked levels schedule all networks on first tick
+        if (levelData != null) {
+            Hibernation hibernation = levelData.hibernated.remove(network.getNetworkId());
+
+            if (hibernation != null) {
+                resume(levelData, network, hibernation);
+            }
+
+            schedule(levelData, network);
+            trackConsumers(levelData, network);
+        }
+    }
+
+    @Override
+    public void onChunkLoad(@NotNull ServerLevel level, @NotNull ChunkPos chunkPos) {
+        LevelData levelData = levelMap.get(NetworkUtils.getLevelId(level));
+
+        if (levelData != null && !levelData.hibernated.isEmpty()) {
+            Map<Integer, IrrigationServerNetwork> networks = YTechMod.IRRIGATION_PROPAGATOR.server().getNetworks(level);
+
+            YTechMod.IRRIGATION_PROPAGATOR.server().getNetworkIds(level, chunkPos).forEach((int networkId) -> {
+                Hibernation hibernation = levelData.hibernated.remove(networkId);
+                IrrigationServerNetwork network = networks.get(networkId);
+
+                if (hibernation != null && network != null) {
+                    resume(levelData, network, hibernation);
+                    schedule(levelData, network);
+                    trackConsumers(levelData, network);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onLevelUnload(@NotNull ServerLevel level) {
+        levelMap.remove(NetworkUtils.getLevelId(level));
+    }
+
+    @Override
+    public void tick(@NotNull ServerLevel level) {
+        Map<Integer, IrrigationServerNetwork> networks = YTechMod.IRRIGATION_PROPAGATOR.server().getNetworks(level);
+        LevelData levelData = levelMap.get(NetworkUtils.getLevelId(level));
+        long gameTime = level.getGameTime();
+
+        if (levelData == null) {
+            levelData = new LevelData(gameTime - 1, level.isRaining());
+            levelMap.put(NetworkUtils.getLevelId(level), levelData);
+
+            for (IrrigationServerNetwork network : networks.values()) {
+                schedule(levelData, network);
+                trackConsumers(levelData, network);
+            }
+        }
+
+        long rainFillTicks = levelData.rainFillTicks;
+
+        levelData.currentTick = gameTime;
+
+        if (level.isRaining() && gameTime % YTechMod.CONFIGURATION.getRainingFillPerNthTick() == 0) {
+            levelData.rainFillTicks++;
+        }
+
+        if (levelData.raining != level.isRaining()) {
+            levelData.raining = level.isRaining();
+
+            for (IrrigationServerNetwork network : networks.values()) {
+                schedule(levelData, network);
+            }
+        }
+
+        if (gameTime % CONSUMERS_PER_NTH_TICK == 0) {
+            serveConsumers(level, levelData, networks);
+        }
+
+        int index = (int) (gameTime % WHEEL_SIZE);
+        IntArrayList bucket = levelData.wheel[index];
+
+        if (bucket.isEmpty()) {
+            return;
+        }
+
+        levelData.wheel[index] = new IntArrayList();
+
+        for (int i = 0; i < bucket.size(); i++) {
+            int networkId = bucket.getInt(i);
+            long wakeTick = levelData.scheduled.get(networkId);
+
+            if (wakeTick > gameTime && wakeTick % WHEEL_SIZE == index) {
+                levelData.wheel[index].add(networkId); // scheduled for later turn of wheel
+            } else if (wakeTick == gameTime) {
+                IrrigationServerNetwork network = networks.get(networkId);
+
+                levelData.scheduled.remove(networkId);
+
+                if (network != null && !network.isAnyChunkLoaded(level)) {
+                    // fill of this tick is part of catch up
+                    levelData.hibernated.putIfAbsent(networkId, new Hibernation(gameTime - 1, rainFillTicks));
+                    levelData.consumerNetworks.remove(networkId);
+                } else if (network != null) {
+                    long begin = YTechMod.NETWORK_METRICS.begin();
+
+                    network.tick(level);
+                    YTechMod.NETWORK_METRICS.recordNetworkTick(IrrigationUtils.NETWORK_NAME, NetworkUtils.getLevelId(level), networkId, begin);
+                    schedule(levelData, network);
+                }
+            }
+        }
+    }
+
+    private static void serveConsumers(@NotNull ServerLevel level, @NotNull LevelData levelData, @NotNull Map<Integer, IrrigationServerNetwork> networks) {
+        long begin = YTechMod.NETWORK_METRICS.begin();
+        IntArrayList removed = new IntArrayList();
+        IntIterator iterator = levelData.consumerNetworks.iterator();
+        int count = 0;
+
+        // served consumers change their block state, which can change networks, such changes are applied after serving
+        levelData.serving = true;
+
+        while (iterator.hasNext()) {
+            int networkId = iterator.nextInt();
+            IrrigationServerNetwork network = networks.get(networkId);
+
+            // merged or removed networks are dropped lazily
+            if (network == null || !network.hasConsumers()) {
+                removed.add(networkId);
+            } else {
+                network.serveConsumers(level, CONSUMERS_PER_NTH_TICK);
+                count++;
+            }
+        }
+
+        levelData.serving = false;
+        levelData.consumerNetworks.removeAll(removed);
+
+        for (int i = 0; i < levelData.deferred.size(); i++) {
+            IrrigationServerNetwork network = networks.get(levelData.deferred.getInt(i));
+
+            if (network != null) {
+                trackConsumers(levelData, network);
+            }
+        }
+
+        levelData.deferred.clear();
+        YTechMod.NETWORK_METRICS.end(IrrigationUtils.NETWORK_NAME, "serveConsumers", begin, count);
+    }
+
+    // only networks with consumers outside of hibernation are served
+    private static void trackConsumers(@NotNull LevelData levelData, @NotNull IrrigationServerNetwork network) {
+        if (levelData.serving) {
+            levelData.deferred.add(network.getNetworkId());
+        } else if (network.hasConsumers() && !levelData.hibernated.containsKey(network.getNetworkId())) {
+            levelData.consumerNetworks.add(network.getNetworkId());
+        } else {
+            levelData.consumerNetworks.remove(network.getNetworkId());
+        }
+    }
+
+    private static void schedule(@NotNull LevelData levelData, @NotNull IrrigationServerNetwork network) {
+        if (levelData.hibernated.containsKey(network.getNetworkId())) {
+            return;
+        }
+
+        long wakeTick = getNextFillTick(levelData, network);
+        long scheduledTick = levelData.scheduled.get(network.getNetworkId());
+
+        if (wakeTick == NOT_SCHEDULED) {
+            levelData.scheduled.remove(network.getNetworkId());
+        } else if (scheduledTick == NOT_SCHEDULED || scheduledTick <= levelData.currentTick || wakeTick < scheduledTick) {
+            levelData.scheduled.put(network.getNetworkId(), wakeTick);
+            levelData.wheel[(int) (wakeTick % WHEEL_SIZE)].add(network.getNetworkId());
+        }
+    }
+
+    // closed form of fills missed while hibernated
+    private static void resume(@NotNull LevelData levelData, @NotNull IrrigationServerNetwork network, @NotNull Hibernation hibernation) {
+        int valveFillPerNthTick = YTechMod.CONFIGURATION.getValveFillPerNthTick();
+        long valveFills = levelData.currentTick / valveFillPerNthTick - hibernation.gameTime / valveFillPerNthTick;
+
+        network.catchUp(valveFills, levelData.rainFillTicks - hibernation.rainFillTicks);
+    }
+
+    private static long getNextFillTick(@NotNull LevelData levelData, @NotNull IrrigationServerNetwork network) {
+        long wakeTick = Long.MAX_VALUE;
+
+        if (network.getFluidHandler().getFluidAmount() >= network.getFluidHandler().getCapacity()) {
+            return NOT_SCHEDULED;
+        }
+
+        if (network.getInflow() > 0) {
+            wakeTick = getNextMultiple(levelData.currentTick, YTechMod.CONFIGURATION.getValveFillPerNthTick());
+        }
+
+        if (levelData.raining && YTechMod.CONFIGURATION.shouldRainingFillAqueduct() && network.filledByRainCount() > 0) {
+            wakeTick = Math.min(wakeTick, getNextMultiple(levelData.currentTick, YTechMod.CONFIGURATION.getRainingFillPerNthTick()));
+        }
+
+        return wakeTick != Long.MAX_VALUE ? wakeTick : NOT_SCHEDULED;
+    }
+
+    private static long getNextMultiple(long after, int n) {
+        return (after / n + 1) * n;
+    }
+
+    private static class LevelData {
+        @NotNull private final IntArrayList[] wheel = new IntArrayList[WHEEL_SIZE];
+        @NotNull private final Int2LongOpenHashMap scheduled = new Int2LongOpenHashMap();
+        @NotNull private final Int2ObjectOpenHashMap<Hibernation> hibernated = new Int2ObjectOpenHashMap<>();
+        @NotNull private final IntOpenHashSet consumerNetworks = new IntOpenHashSet();
+        @NotNull private final IntArrayList deferred = new IntArrayList();
+        private long currentTick;
+        private long rainFillTicks = 0;
+        private boolean raining;
+        private boolean serving;
+
+        private LevelData(long currentTick, boolean raining) {
+            this.currentTick = currentTick;
+            this.raining = raining;
+
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel[i] = new IntArrayList();
+            }
+
+            scheduled.defaultReturnValue(NOT_SCHEDULED);
+        }
+    }
+
+    private record Hibernation(long gameTime, long rainFillTicks) {}
+}
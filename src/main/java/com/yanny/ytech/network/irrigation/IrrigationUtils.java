@@ -8,29 +8,49 @@ import com.yanny.ytech.network.generic.common.NetworkFactory;
 import com.yanny.ytech.network.generic.message.LevelSyncMessage;
 import com.yanny.ytech.network.generic.message.NetworkAddedOrUpdatedMessage;
 import com.yanny.ytech.network.generic.message.NetworkRemovedMessage;
+import com.yanny.ytech.network.generic.server.NetworkGraphEngine;
+import com.yanny.ytech.network.generic.server.NetworkIndex;
 import com.yanny.ytech.network.generic.server.ServerPropagator;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.RegistryFriendlyByteBuf;
 import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.Mth;
 import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.fml.loading.FMLEnvironment;
-import net.neoforged.neoforge.network.PacketDistributor;
 import net.neoforged.neoforge.network.handling.IPayloadContext;
 import net.neoforged.neoforge.network.registration.PayloadRegistrar;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class IrrigationUtils {
+    public static final String NETWORK_NAME = "irrigation";
+    // render resolution of water level, fits to single byte
+    static final int FILL_LEVELS = 255;
+    private static final byte DELTA_LEVEL = 1;
+    private static final byte DELTA_CAPACITY = 2;
+
     public static YTechMod.DistHolder<ClientPropagator<IrrigationClientNetwork, IIrrigationBlockEntity>, ServerPropagator<IrrigationServerNetwork, IIrrigationBlockEntity>> registerIrrigationPropagator(PayloadRegistrar channel) {
-        ServerPropagator<IrrigationServerNetwork, IIrrigationBlockEntity> server = new ServerPropagator<>(new Factory(), "irrigation");
+        ServerPropagator<IrrigationServerNetwork, IIrrigationBlockEntity> server = new ServerPropagator<>(new Factory(),
+                new NetworkGraphEngine(() -> YTechMod.CONFIGURATION.isAsyncNetworkGraph()), NETWORK_NAME);
         IrrigationClientPropagator client;
 
         if (FMLEnvironment.dist == Dist.CLIENT) {
@@ -60,57 +80,157 @@ public class IrrigationUtils {
 
     private static class IrrigationClientPropagator extends ClientPropagator<IrrigationClientNetwork, IIrrigationBlockEntity> {
         public IrrigationClientPropagator() {
-            super("irrigation");
+            super(NETWORK_NAME);
         }
+
         public void onSyncLevel(@NotNull IrrigationUtils.MyLevelSyncMessage msg, @NotNull IPayloadContext context) {
             context.enqueueWork(() -> syncLevel(msg.networkMap.entrySet().stream().map((entry) -> {
                 Payload payload = entry.getValue();
-                return new IrrigationClientNetwork(entry.getKey(), payload.amount, payload.capacity);
+                return new IrrigationClientNetwork(entry.getKey(), dequantize(payload.level, payload.capacity), payload.capacity);
             }).collect(Collectors.toMap(CommonNetwork::getNetworkId, (b) -> b))));
         }
 
         public void onNetworkAddedOrUpdated(@NotNull IrrigationUtils.MyNetworkUpdatedMessage msg, @NotNull IPayloadContext context) {
-            context.enqueueWork(() -> {
-                IrrigationUtils.Payload payload = msg.payload;
-                addOrUpdateNetwork(new IrrigationClientNetwork(payload.networkId, payload.amount, payload.capacity));
-            });
+            context.enqueueWork(() -> addOrUpdateNetworks(msg.payloads.stream().map(this::applyDelta).toList()));
         }
 
         public void onNetworkRemoved(@NotNull IrrigationUtils.MyNetworkRemoveMessage msg, @NotNull IPayloadContext context) {
             context.enqueueWork(() -> deletedNetwork(msg.networkId));
         }
+
+        @NotNull
+        private IrrigationClientNetwork applyDelta(@NotNull Delta delta) {
+            IrrigationClientNetwork network = getNetwork(delta.networkId);
+            int oldCapacity = network != null ? network.getCapacity() : 0;
+            int capacity = delta.hasCapacity() ? delta.capacity : oldCapacity;
+            int amount;
+
+            if (delta.hasLevel()) {
+                amount = dequantize(delta.level, capacity);
+            } else if (network != null && oldCapacity > 0) {
+                // fill level is same, only capacity changed
+                amount = (int) ((long) network.getAmount() * capacity / oldCapacity);
+            } else {
+                amount = 0;
+            }
+
+            return new IrrigationClientNetwork(delta.networkId, amount, capacity);
+        }
     }
 
     private static class Factory implements NetworkFactory<IrrigationServerNetwork, IIrrigationBlockEntity> {
+        private static final long NOT_SENT = -1;
+
+        @NotNull private final WeakHashMap<ServerPlayer, SentState> sentStates = new WeakHashMap<>();
+
         @Override
         public @NotNull IrrigationServerNetwork createNetwork(@NotNull CompoundTag tag, int networkId, @NotNull Consumer<Integer> onChange,
-                                                              @NotNull BiConsumer<Integer, ChunkPos> onRemove, HolderLookup.Provider provider) {
-            return new IrrigationServerNetwork(tag, networkId, onChange, onRemove, provider);
+                                                              @NotNull BiConsumer<Integer, ChunkPos> onRemove, @NotNull NetworkIndex networkIndex,
+                                                              HolderLookup.Provider provider) {
+            return new IrrigationServerNetwork(tag, networkId, onChange, onRemove, networkIndex, provider);
         }
 
         @Override
-        public @NotNull IrrigationServerNetwork createNetwork(int networkId, @NotNull Consumer<Integer> onChange, @NotNull BiConsumer<Integer, ChunkPos> onRemove) {
-            return new IrrigationServerNetwork(networkId, onChange, onRemove);
+        public @NotNull IrrigationServerNetwork createNetwork(int networkId, @NotNull Consumer<Integer> onChange, @NotNull BiConsumer<Integer, ChunkPos> onRemove,
+                                                              @NotNull NetworkIndex networkIndex) {
+            return new IrrigationServerNetwork(networkId, onChange, onRemove, networkIndex);
         }
 
         @Override
         public void sendRemoved(@NotNull ServerPlayer player, int networkId) {
-            PacketDistributor.sendToPlayer(player, new IrrigationUtils.MyNetworkRemoveMessage(networkId));
+            getSentState(player).remove(networkId);
+            send(player, new IrrigationUtils.MyNetworkRemoveMessage(networkId), MyNetworkRemoveMessage.CODEC);
         }
 
         @Override
-        public void sendUpdated(@NotNull ServerPlayer player, @NotNull IrrigationServerNetwork network) {
-            PacketDistributor.sendToPlayer(player, new IrrigationUtils.MyNetworkUpdatedMessage(
-                    new IrrigationUtils.Payload(network.getNetworkId(), network.getFluidHandler().getFluidAmount(), network.getFluidHandler().getCapacity())));
+        public void sendUpdated(@NotNull ServerPlayer player, @NotNull Collection<IrrigationServerNetwork> networks) {
+            Int2LongMap sentState = getSentState(player);
+            List<Delta> deltas = new ArrayList<>(networks.size());
+
+            // send only values that differs from last state sent to player
+            networks.forEach((network) -> {
+                int level = quantize(network.getFluidHandler().getFluidAmount(), network.getFluidHandler().getCapacity());
+                int capacity = network.getFluidHandler().getCapacity();
+                long state = packState(level, capacity);
+                long oldState = sentState.put(network.getNetworkId(), state);
+
+                if (oldState == NOT_SENT) {
+                    deltas.add(new Delta(network.getNetworkId(), (byte) (DELTA_LEVEL | DELTA_CAPACITY), level, capacity));
+                } else if (oldState != state) {
+                    byte flags = (byte) ((unpackLevel(oldState) != level ? DELTA_LEVEL : 0) | (unpackCapacity(oldState) != capacity ? DELTA_CAPACITY : 0));
+                    deltas.add(new Delta(network.getNetworkId(), flags, level, capacity));
+                }
+            });
+
+            if (!deltas.isEmpty()) {
+                send(player, new IrrigationUtils.MyNetworkUpdatedMessage(deltas), MyNetworkUpdatedMessage.CODEC);
+            }
         }
 
         @Override
         public void sendLevelSync(@NotNull ServerPlayer player, @NotNull Map<Integer, IrrigationServerNetwork> networkMap) {
-            PacketDistributor.sendToPlayer(player, new IrrigationUtils.MyLevelSyncMessage(networkMap.entrySet().stream().map((entry) -> {
+            Int2LongMap sentState = getSentState(player);
+
+            sentState.clear();
+            send(player, new IrrigationUtils.MyLevelSyncMessage(networkMap.entrySet().stream().map((entry) -> {
                 IrrigationServerNetwork network = entry.getValue();
-                return new IrrigationUtils.Payload(entry.getKey(), network.getFluidHandler().getFluidAmount(), network.getFluidHandler().getCapacity());
-            }).collect(Collectors.toMap((a) -> a.networkId, (b) -> b))));
+                int level = quantize(network.getFluidHandler().getFluidAmount(), network.getFluidHandler().getCapacity());
+                int capacity = network.getFluidHandler().getCapacity();
+
+                sentState.put(entry.getKey().intValue(), packState(level, capacity));
+                return new IrrigationUtils.Payload(entry.getKey(), level, capacity);
+            }).collect(Collectors.toMap((a) -> a.networkId, (b) -> b))), MyLevelSyncMessage.CODEC);
+        }
+
+        @Override
+        public void onNetworkChanged(@NotNull ResourceLocation levelId, @NotNull IrrigationServerNetwork network) {
+            YTechMod.IRRIGATION_TICK_SCHEDULER.wake(levelId, network);
+        }
+
+        // packet size is measured only while profiling, it requires encoding message twice
+        private static <T extends CustomPacketPayload> void send(@NotNull ServerPlayer player, @NotNull T message,
+                                                                 @NotNull StreamCodec<RegistryFriendlyByteBuf, T> codec) {
+            if (YTechMod.NETWORK_METRICS.isEnabled()) {
+                RegistryFriendlyByteBuf buf = new RegistryFriendlyByteBuf(Unpooled.buffer(), player.registryAccess());
+
+                try {
+                    codec.encode(buf, message);
+                    YTechMod.NETWORK_METRICS.recordPacket(player, buf.readableBytes());
+                } finally {
+                    buf.release();
+                }
+            }
+
+            YTechMod.NETWORK_REGISTRY.queue(player, message);
+        }
+
+        // state is reset when player changes level, as network ids are unique only per level
+        @NotNull
+        private Int2LongMap getSentState(@NotNull ServerPlayer player) {
+            SentState sentState = sentStates.get(player);
+
+            if (sentState == null || sentState.dimension != player.level().dimension()) {
+                sentState = new SentState(player.level().dimension(), new Int2LongOpenHashMap());
+                sentState.networks.defaultReturnValue(NOT_SENT);
+                sentStates.put(player, sentState);
+            }
+
+            return sentState.networks;
         }
+
+        private static long packState(int level, int capacity) {
+            return ((long) capacity << 8) | level;
+        }
+
+        private static int unpackLevel(long state) {
+            return (int) (state & 0xFF);
+        }
+
+        private static int unpackCapacity(long state) {
+            return (int) (state >>> 8);
+        }
+
+        private record SentState(@NotNull ResourceKey<Level> dimension, @NotNull Int2LongMap networks) {}
     }
 
     static class MyNetworkRemoveMessage extends NetworkRemovedMessage implements CustomPacketPayload {
@@ -143,7 +263,7 @@ public class IrrigationUtils {
         }
     }
 
-    static class MyNetworkUpdatedMessage extends NetworkAddedOrUpdatedMessage<IrrigationUtils.Payload> implements CustomPacketPayload {
+    static class MyNetworkUpdatedMessage extends NetworkAddedOrUpdatedMessage<IrrigationUtils.Delta> implements CustomPacketPayload {
         public static final Type<MyNetworkUpdatedMessage> TYPE = new Type<>(Utils.modLoc("irrigation_network_updated"));
         public static final StreamCodec<RegistryFriendlyByteBuf, MyNetworkUpdatedMessage> CODEC = new StreamCodec<>() {
             @NotNull
@@ -158,20 +278,16 @@ public class IrrigationUtils {
             }
         };
 
-        public MyNetworkUpdatedMessage(@NotNull IrrigationUtils.Payload payload) {
-            super(payload);
+        public MyNetworkUpdatedMessage(@NotNull List<IrrigationUtils.Delta> payloads) {
+            super(payloads);
         }
 
         public MyNetworkUpdatedMessage(@NotNull RegistryFriendlyByteBuf buf) {
-            super(buf, (buffer) -> new IrrigationUtils.Payload(buffer.readInt(), buffer.readInt(), buffer.readInt()));
+            super(buf, IrrigationUtils::readDelta);
         }
 
         public void write(@NotNull RegistryFriendlyByteBuf buf) {
-            super.write(buf, (buffer, payload) -> {
-                buffer.writeInt(payload.networkId);
-                buffer.writeInt(payload.amount);
-                buffer.writeInt(payload.capacity);
-            });
+            super.write(buf, IrrigationUtils::writeDelta);
         }
 
         @NotNull
@@ -201,14 +317,14 @@ public class IrrigationUtils {
         }
 
         public MyLevelSyncMessage(@NotNull RegistryFriendlyByteBuf buf) {
-            super(buf, (buffer) -> new IrrigationUtils.Payload(buffer.readInt(), buffer.readInt(), buffer.readInt()));
+            super(buf, (buffer) -> new IrrigationUtils.Payload(buffer.readVarInt(), buffer.readUnsignedByte(), buffer.readVarInt()));
         }
 
         public void write(@NotNull RegistryFriendlyByteBuf buf) {
             super.write(buf, (buffer, payload) -> {
-                buffer.writeInt(payload.networkId);
-                buffer.writeInt(payload.amount);
-                buffer.writeInt(payload.capacity);
+                buffer.writeVarInt(payload.networkId);
+                buffer.writeByte(payload.level);
+                buffer.writeVarInt(payload.capacity);
             });
         }
 
@@ -219,5 +335,51 @@ public class IrrigationUtils {
         }
     }
 
-    record Payload(int networkId, int amount, int capacity) {}
+    // level is fill level quantized to FILL_LEVELS
+    record Payload(int networkId, int level, int capacity) {}
+
+    // flags mark values that differ from state last sent to player, only those are written
+    record Delta(int networkId, byte flags, int level, int capacity) {
+        boolean hasLevel() {
+            return (flags & DELTA_LEVEL) != 0;
+        }
+
+        boolean hasCapacity() {
+            return (flags & DELTA_CAPACITY) != 0;
+        }
+    }
+
+    static int quantize(int amount, int capacity) {
+        if (amount <= 0 || capacity <= 0) {
+            return 0;
+        }
+
+        return Mth.clamp(Math.round(amount * (float) FILL_LEVELS / capacity), 1, FILL_LEVELS);
+    }
+
+    static int dequantize(int level, int capacity) {
+        return Math.round(level * (float) capacity / FILL_LEVELS);
+    }
+
+    @NotNull
+    private static Delta readDelta(@NotNull FriendlyByteBuf buf) {
+        int networkId = buf.readVarInt();
+        byte flags = buf.readByte();
+        int level = (flags & DELTA_LEVEL) != 0 ? buf.readUnsignedByte() : 0;
+        int capacity = (flags & DELTA_CAPACITY) != 0 ? buf.readVarInt() : 0;
+
+        return new Delta(networkId, flags, level, capacity);
+    }
+
+    private static void writeDelta(@NotNull FriendlyByteBuf buf, @NotNull Delta delta) {
+        buf.writeVarInt(delta.networkId);
+        buf.writeByte(delta.flags);
+
+        if (delta.hasLevel()) {
+            buf.writeByte(delta.level);
+        }
+        if (delta.hasCapacity()) {
+            buf.writeVarInt(delta.capacity);
+        }
+    }
 }
@@ -0,0 +1,116 @@
+package com.yanny.ytech.network.irrigation;
+
+import com.yanny.ytech.YTechMod;
+import com.yanny.ytech.network.generic.NetworkUtils;
+import com.yanny.ytech.network.generic.server.IServerLevelListener;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.levelgen.Heightmap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// rechecks rain filling eligibility of tracked blocks only during rain and only when it may have changed:
+// when block was loaded, when rain starts and when heightmap above block changes.
+// blocks are split to slots by position hash and single slot is polled per tick
+public class RainExposureTracker implements IServerLevelListener {
+    private static final int POLL_PER_NTH_TICK = 20;
+    // block loaded since last poll, eligibility is refreshed on first poll of its slot
+    private static final int UNKNOWN_HEIGHT = Integer.MIN_VALUE;
+
+    @NotNull private final Map<ResourceLocation, LevelData> levelMap = new HashMap<>();
+
+    // rain is filling only during rain, so loaded block is checked lazily on poll
+    public void track(@NotNull ServerLevel level, @NotNull IIrrigationBlockEntity blockEntity) {
+        long pos = blockEntity.getBlockPos().asLong();
+
+        getLevelData(level).slots[slot(pos)].put(pos, UNKNOWN_HEIGHT);
+    }
+
+    public void untrack(@NotNull ServerLevel level, @NotNull IIrrigationBlockEntity blockEntity) {
+        LevelData levelData = levelMap.get(NetworkUtils.getLevelId(level));
+
+        if (levelData != null) {
+            long pos = blockEntity.getBlockPos().asLong();
+
+            levelData.slots[slot(pos)].remove(pos);
+        }
+    }
+
+    @Override
+    public void onLevelUnload(@NotNull ServerLevel level) {
+        levelMap.remove(NetworkUtils.getLevelId(level));
+    }
+
+    @Override
+    public void tick(@NotNull ServerLevel level) {
+        LevelData levelData = levelMap.get(NetworkUtils.getLevelId(level));
+
+        if (levelData == null || !YTechMod.CONFIGURATION.shouldRainingFillAqueduct() || !YTechMod.CONFIGURATION.isValidBlockForRaining()) {
+            return;
+        }
+
+        if (!level.isRaining()) {
+            Arrays.fill(levelData.rainSeen, false);
+            return;
+        }
+
+        int slot = (int) (level.getGameTime() % POLL_PER_NTH_TICK);
+        // every slot is fully rechecked once when rain starts
+        boolean rainStarted = !levelData.rainSeen[slot];
+        LongList changed = new LongArrayList();
+
+        levelData.rainSeen[slot] = true;
+
+        for (Long2IntMap.Entry entry : levelData.slots[slot].long2IntEntrySet()) {
+            BlockPos pos = BlockPos.of(entry.getLongKey());
+
+            if (level.isLoaded(pos)) {
+                int height = getHeight(level, pos);
+
+                if (rainStarted || height != entry.getIntValue()) {
+                    entry.setValue(height);
+                    changed.add(entry.getLongKey());
+                }
+            }
+        }
+
+        // updating may destroy blocks and untrack them, so it is done after iteration
+        changed.forEach((long pos) -> {
+            if (level.getBlockEntity(BlockPos.of(pos)) instanceof IIrrigationBlockEntity blockEntity) {
+                YTechMod.IRRIGATION_PROPAGATOR.server().changed(blockEntity);
+            }
+        });
+    }
+
+    @NotNull
+    private LevelData getLevelData(@NotNull ServerLevel level) {
+        return levelMap.computeIfAbsent(NetworkUtils.getLevelId(level), (id) -> new LevelData());
+    }
+
+    private static int slot(long pos) {
+        return Math.floorMod(HashCommon.mix(pos), POLL_PER_NTH_TICK);
+    }
+
+    private static int getHeight(@NotNull ServerLevel level, @NotNull BlockPos pos) {
+        return level.getHeight(Heightmap.Types.MOTION_BLOCKING, pos.getX(), pos.getZ());
+    }
+
+    private static class LevelData {
+        @NotNull private final Long2IntOpenHashMap[] slots = new Long2IntOpenHashMap[POLL_PER_NTH_TICK];
+        // slots already checked since rain started
+        private final boolean[] rainSeen = new boolean[POLL_PER_NTH_TICK];
+
+        private LevelData() {
+            Arrays.setAll(slots, (i) -> new Long2IntOpenHashMap());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.yanny.ytech.registration;
 
+import net.minecraft.client.renderer.BiomeColors;
 import net.neoforged.neoforge.client.event.RegisterColorHandlersEvent;
 import net.neoforged.neoforge.event.BuildCreativeModeTabContentsEvent;
 
@@ -14,4 +15,9 @@ public class Registration {
         event.register((i, t) -> t == 1 ? 0xF54D0C : 0xFFFFFFFF, YTechItems.LAVA_CLAY_BUCKET.get());
         event.register((i, t) -> t == 1 ? 0x0C4DF5 : 0xFFFFFFFF, YTechItems.WATER_CLAY_BUCKET.get());
     }
+
+    // water in aqueduct rendered with terrain
+    public static void addBlockColors(RegisterColorHandlersEvent.Block event) {
+        event.register((state, level, pos, t) -> level != null && pos != null ? BiomeColors.getAverageWaterColor(level, pos) : 0xFFFFFFFF, YTechBlocks.AQUEDUCT.get());
+    }
 }
@@ -0,0 +1,167 @@
+package com.yanny.ytech.network.generic.server;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NetworkGraphEngineTest {
+    @Test
+    void splitMatchesBruteForceComponents() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 500; i++) {
+            NetworkGraph graph = randomGraph(random, 4 + random.nextInt(16));
+            long pos = randomNode(random, graph);
+            byte connections = graph.getConnections(pos);
+
+            graph.remove(pos);
+
+            Queue<Runnable> tasks = new ArrayDeque<>();
+            NetworkGraphEngine engine = new NetworkGraphEngine(tasks::add, () -> true);
+            CompletableFuture<LongList> async = engine.findDetachedSeeds(graph, pos, connections);
+            LongList sync = graph.findDetachedSeeds(pos, connections);
+            Long2IntMap components = components(graph);
+            IntSet neighborComponents = new IntOpenHashSet();
+
+            tasks.forEach(Runnable::run);
+
+            for (Direction direction : Direction.values()) {
+                long neighbor = BlockPos.offset(pos, direction);
+
+                if (isConnected(connections, direction) && graph.contains(neighbor) && isConnected(graph.getConnections(neighbor), direction.getOpposite())) {
+                    neighborComponents.add(components.get(neighbor));
+                }
+            }
+
+            // every detached part except the one keeping network gets single seed
+            for (LongList seeds : List.of(sync, async.join())) {
+                IntSet seedComponents = new IntOpenHashSet();
+
+                seeds.forEach((long seed) -> seedComponents.add(components.get(seed)));
+                assertEquals(Math.max(0, neighborComponents.size() - 1), seeds.size());
+                assertEquals(seeds.size(), seedComponents.size());
+                assertTrue(neighborComponents.containsAll(seedComponents));
+            }
+        }
+    }
+
+    @Test
+    void asyncSplitIsNotAffectedByLaterModification() {
+        NetworkGraph graph = line(10);
+        long pos = BlockPos.asLong(5, 64, 0);
+        byte connections = graph.getConnections(pos);
+
+        graph.remove(pos);
+
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        NetworkGraphEngine engine = new NetworkGraphEngine(tasks::add, () -> true);
+        CompletableFuture<LongList> async = engine.findDetachedSeeds(graph, pos, connections);
+        LongList sync = graph.findDetachedSeeds(pos, connections);
+
+        // reconnects both parts on live graph before search runs
+        graph.add(pos, NetworkGraph.HORIZONTAL_CONNECTIONS);
+        tasks.forEach(Runnable::run);
+
+        assertEquals(1, sync.size());
+        assertEquals(sync, async.join());
+        assertTrue(graph.findDetachedSeeds(pos, connections).isEmpty());
+    }
+
+    // plain flood fill over all nodes, edge exists only when both nodes declare connection
+    private static Long2IntMap components(NetworkGraph graph) {
+        Long2ByteMap nodes = new Long2ByteOpenHashMap();
+        Long2IntMap components = new Long2IntOpenHashMap();
+        int component = 0;
+
+        graph.forEachNode(nodes::put);
+
+        for (long start : nodes.keySet()) {
+            if (components.containsKey(start)) {
+                continue;
+            }
+
+            Queue<Long> queue = new ArrayDeque<>();
+
+            components.put(start, component);
+            queue.add(start);
+
+            while (!queue.isEmpty()) {
+                long pos = queue.poll();
+
+                for (Direction direction : Direction.values()) {
+                    long next = BlockPos.offset(pos, direction);
+
+                    if (isConnected(nodes.get(pos), direction) && nodes.containsKey(next) && isConnected(nodes.get(next), direction.getOpposite())
+                            && !components.containsKey(next)) {
+                        components.put(next, component);
+                        queue.add(next);
+                    }
+                }
+            }
+
+            component++;
+        }
+
+        return components;
+    }
+
+    private static boolean isConnected(byte connections, Direction direction) {
+        return (connections & (1 << direction.get3DDataValue())) != 0;
+    }
+
+    private static NetworkGraph line(int length) {
+        NetworkGraph graph = new NetworkGraph();
+
+        for (int x = 0; x < length; x++) {
+            graph.add(BlockPos.asLong(x, 64, 0), NetworkGraph.HORIZONTAL_CONNECTIONS);
+        }
+
+        return graph;
+    }
+
+    private static NetworkGraph randomGraph(Random random, int side) {
+        NetworkGraph graph = new NetworkGraph();
+        double density = 0.5 + random.nextDouble() * 0.4;
+
+        for (int x = 0; x < side; x++) {
+            for (int z = 0; z < side; z++) {
+                if (random.nextDouble() < density) {
+                    byte connections = NetworkGraph.HORIZONTAL_CONNECTIONS;
+
+                    // some blocks refuse one side, edge then exists only from neighbor side
+                    if (random.nextDouble() < 0.1) {
+                        connections &= (byte) ~(1 << Direction.from2DDataValue(random.nextInt(4)).get3DDataValue());
+                    }
+
+                    graph.add(BlockPos.asLong(x, 64, z), connections);
+                }
+            }
+        }
+
+        graph.add(BlockPos.asLong(side, 64, 0), NetworkGraph.HORIZONTAL_CONNECTIONS);
+        return graph;
+    }
+
+    private static long randomNode(Random random, NetworkGraph graph) {
+        long[] nodes = new long[graph.size()];
+        int[] index = {0};
+
+        graph.forEachNode((pos, connections) -> nodes[index[0]++] = pos);
+        return nodes[random.nextInt(nodes.length)];
+    }
+}
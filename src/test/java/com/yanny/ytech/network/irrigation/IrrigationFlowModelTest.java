@@ -0,0 +1,78 @@
+package com.yanny.ytech.network.irrigation;
+
+import net.minecraft.core.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IrrigationFlowModelTest {
+    private static final int SEGMENT_CAPACITY = 1000;
+
+    @Test
+    void gradientSurvivesSmallReconcile() {
+        IrrigationFlowModel model = gradient(10);
+
+        model.reconcile(model.getTotal() + 10, SEGMENT_CAPACITY);
+
+        assertEquals(560, model.getTotal());
+
+        for (int x = 0; x < 9; x++) {
+            assertEquals(10, model.getAmount(pos(x)) - model.getAmount(pos(x + 1)));
+        }
+
+        model.reconcile(model.getTotal() - 10, SEGMENT_CAPACITY);
+
+        assertEquals(550, model.getTotal());
+
+        for (int x = 0; x < 10; x++) {
+            assertEquals(100 - x * 10, model.getAmount(pos(x)));
+        }
+    }
+
+    @Test
+    void reconcileIsClampedToSegmentCapacity() {
+        IrrigationFlowModel model = gradient(10);
+
+        model.reconcile(model.getTotal() + 100, 100);
+
+        assertEquals(650, model.getTotal());
+        assertEquals(100, model.getAmount(pos(0)));
+
+        for (int x = 0; x < 10; x++) {
+            assertTrue(model.getAmount(pos(x)) <= 100);
+        }
+
+        model.reconcile(100, 100);
+
+        assertEquals(100, model.getTotal());
+
+        for (int x = 0; x < 10; x++) {
+            assertTrue(model.getAmount(pos(x)) >= 0);
+        }
+    }
+
+    @Test
+    void reconcileStopsWhenSegmentsAreFull() {
+        IrrigationFlowModel model = gradient(10);
+
+        model.reconcile(Integer.MAX_VALUE, 100);
+
+        assertEquals(1000, model.getTotal());
+    }
+
+    // 100 units at first segment, 10 less at every next one
+    private static IrrigationFlowModel gradient(int length) {
+        IrrigationFlowModel model = new IrrigationFlowModel();
+
+        for (int x = 0; x < length; x++) {
+            model.addSegment(pos(x));
+            model.setAmount(pos(x), 100 - x * 10);
+        }
+
+        return model;
+    }
+
+    private static long pos(int x) {
+        return BlockPos.asLong(x, 64, 0);
+    }
+}